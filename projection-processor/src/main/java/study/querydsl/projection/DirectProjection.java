@@ -0,0 +1,16 @@
+package study.querydsl.projection;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 생성자에 붙이면 같은 패키지에 {@code <DTO 이름>Projection} 을 생성한다.
+ * 생성된 projection 은 리플렉션 없이 이 생성자를 직접 호출하는 FactoryExpression 이다.
+ * 인자는 위치로 매핑되므로 Projections.bean/fields 와 달리 alias 가 필요 없다.
+ */
+@Target(ElementType.CONSTRUCTOR)
+@Retention(RetentionPolicy.SOURCE)
+public @interface DirectProjection {
+}
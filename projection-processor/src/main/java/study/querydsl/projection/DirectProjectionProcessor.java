@@ -0,0 +1,168 @@
+package study.querydsl.projection;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * {@link DirectProjection} 이 붙은 생성자마다 FactoryExpressionBase 구현을 생성한다.
+ * newInstance 는 생성자를 직접 호출하고, primitive 인자에 null 이 오면 기본값을 넘긴다.
+ */
+@SupportedAnnotationTypes("study.querydsl.projection.DirectProjection")
+public class DirectProjectionProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(DirectProjection.class)) {
+            ExecutableElement constructor = (ExecutableElement) element;
+            TypeElement type = (TypeElement) constructor.getEnclosingElement();
+
+            if (type.getNestingKind() != NestingKind.TOP_LEVEL || type.getKind() != ElementKind.CLASS
+                    || type.getModifiers().contains(Modifier.ABSTRACT)) {
+                error(constructor, "@DirectProjection is only supported on top level concrete classes");
+                continue;
+            }
+            if (constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                error(constructor, "@DirectProjection constructor must not be private");
+                continue;
+            }
+
+            try {
+                write(type, constructor);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return true;
+    }
+
+    private void write(TypeElement type, ExecutableElement constructor) throws IOException {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String dtoName = type.getSimpleName().toString();
+        String projectionName = dtoName + "Projection";
+        List<? extends VariableElement> parameters = constructor.getParameters();
+
+        String expressionParameters = parameters.stream()
+                .map(p -> "Expression<? extends " + boxedName(p.asType()) + "> " + p.getSimpleName())
+                .collect(Collectors.joining(", "));
+        String argNames = parameters.stream()
+                .map(p -> p.getSimpleName().toString())
+                .collect(Collectors.joining(", "));
+
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) {
+                values.append(", ");
+            }
+            TypeMirror parameterType = parameters.get(i).asType();
+            String cast = "(" + boxedName(parameterType) + ") values[" + i + "]";
+            if (parameterType.getKind().isPrimitive()) {
+                values.append("values[").append(i).append("] != null ? ").append(cast).append(" : ").append(defaultValue(parameterType.getKind()));
+            } else {
+                values.append(cast);
+            }
+        }
+
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler()
+                .createSourceFile(packageName + "." + projectionName, type)
+                .openWriter())) {
+            out.println("package " + packageName + ";");
+            out.println();
+            out.println("import com.querydsl.core.types.Expression;");
+            out.println("import com.querydsl.core.types.FactoryExpressionBase;");
+            out.println("import com.querydsl.core.types.Visitor;");
+            out.println();
+            out.println("import javax.annotation.processing.Generated;");
+            out.println("import java.util.Arrays;");
+            out.println("import java.util.Collections;");
+            out.println("import java.util.List;");
+            out.println();
+            out.println("/**");
+            out.println(" * " + projectionName + " is a direct construction projection for {@link " + dtoName + "}");
+            out.println(" */");
+            out.println("@Generated(\"" + DirectProjectionProcessor.class.getName() + "\")");
+            out.println("public class " + projectionName + " extends FactoryExpressionBase<" + dtoName + "> {");
+            out.println();
+            out.println("    private static final long serialVersionUID = 1L;");
+            out.println();
+            out.println("    private final List<Expression<?>> args;");
+            out.println();
+            out.println("    public " + projectionName + "(" + expressionParameters + ") {");
+            out.println("        super(" + dtoName + ".class);");
+            out.println("        this.args = Collections.unmodifiableList(Arrays.<Expression<?>>asList(" + argNames + "));");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public List<Expression<?>> getArgs() {");
+            out.println("        return args;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    @SuppressWarnings(\"unchecked\")");
+            out.println("    public " + dtoName + " newInstance(Object... values) {");
+            out.println("        return new " + dtoName + "(" + values + ");");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public <R, C> R accept(Visitor<R, C> v, C context) {");
+            out.println("        return v.visit(this, context);");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    private String boxedName(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+        }
+        return type.toString();
+    }
+
+    private static String defaultValue(TypeKind kind) {
+        switch (kind) {
+            case BOOLEAN:
+                return "false";
+            case CHAR:
+                return "'\\0'";
+            case BYTE:
+                return "(byte) 0";
+            case SHORT:
+                return "(short) 0";
+            case LONG:
+                return "0L";
+            case FLOAT:
+                return "0f";
+            case DOUBLE:
+                return "0d";
+            default:
+                return "0";
+        }
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,39 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * 임베디드 H2 (in-memory) 위에 애플리케이션을 띄우고 members/teams 만큼 데이터를 적재한다.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkContext {
+
+    @Param({"10000"})
+    public int members;
+
+    @Param({"10"})
+    public int teams;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = EmbeddedApplication.start(WebApplicationType.NONE, members, teams);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+}
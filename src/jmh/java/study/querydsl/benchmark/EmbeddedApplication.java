@@ -0,0 +1,39 @@
+package study.querydsl.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.SpringQuerydslApplication;
+import study.querydsl.service.MemberImportService;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * 벤치마크/부하 테스트용으로 임베디드 H2 (in-memory) 위에 애플리케이션을 띄우고 데이터를 적재한다.
+ */
+public class EmbeddedApplication {
+
+    public static ConfigurableApplicationContext start(WebApplicationType webApplicationType, int members, int teams, String... args) {
+        String[] defaults = {
+                "--spring.profiles.active=benchmark",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--spring.jpa.properties.hibernate.use_sql_comments=false",
+                "--decorator.datasource.enabled=false",
+                "--logging.level.org.hibernate.SQL=warn"
+        };
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringQuerydslApplication.class)
+                .web(webApplicationType)
+                .run(Stream.concat(Stream.of(defaults), Stream.of(args)).toArray(String[]::new));
+
+        List<String> teamNames = IntStream.range(0, teams)
+                .mapToObj(i -> "team" + i)
+                .collect(Collectors.toList());
+        context.getBean(MemberImportService.class).importMembers(members, teamNames);
+        return context;
+    }
+}
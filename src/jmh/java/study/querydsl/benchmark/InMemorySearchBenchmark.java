@@ -0,0 +1,59 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDTO;
+import study.querydsl.repository.InMemoryMemberIndex;
+import study.querydsl.repository.MemberSearchTemplates;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 같은 조건을 JPA (JPQL 템플릿) 경로와 인메모리 컬럼 인덱스로 검색한 지연 시간을 비교한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InMemorySearchBenchmark {
+
+    private MemberSearchTemplates memberSearchTemplates;
+    private InMemoryMemberIndex inMemoryMemberIndex;
+
+    private final MemberSearchCondition byUsername = new MemberSearchCondition("member1", null, null, null);
+    private final MemberSearchCondition byTeamAndAge = new MemberSearchCondition(null, "team1", 30, 35);
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkContext context) {
+        memberSearchTemplates = context.getBean(MemberSearchTemplates.class);
+        inMemoryMemberIndex = context.getBean(InMemoryMemberIndex.class);
+        inMemoryMemberIndex.reload();
+    }
+
+    @Benchmark
+    public List<MemberTeamDTO> jpaByUsername() {
+        return memberSearchTemplates.search(byUsername).getResultList();
+    }
+
+    @Benchmark
+    public List<MemberTeamDTO> inMemoryByUsername() {
+        return inMemoryMemberIndex.search(byUsername);
+    }
+
+    @Benchmark
+    public List<MemberTeamDTO> jpaByTeamAndAge() {
+        return memberSearchTemplates.search(byTeamAndAge).getResultList();
+    }
+
+    @Benchmark
+    public List<MemberTeamDTO> inMemoryByTeamAndAge() {
+        return inMemoryMemberIndex.search(byTeamAndAge);
+    }
+}
@@ -0,0 +1,136 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.MemberDTO;
+import study.querydsl.dto.MemberDTOProjection;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDTO;
+import study.querydsl.dto.QMemberDTO;
+import study.querydsl.dto.UserDTO;
+import study.querydsl.dto.UserDTOProjection;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MemberRepositoryBenchmark {
+
+    @Param({"0", "100"})
+    public int page;
+
+    private MemberJpaRepository memberJpaRepository;
+    private MemberRepository memberRepository;
+    private JPAQueryFactory queryFactory;
+
+    private final MemberSearchCondition teamCondition = new MemberSearchCondition(null, "team1", 20, 40);
+    private final MemberSearchCondition ageCondition = new MemberSearchCondition(null, null, 20, 40);
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkContext context) {
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        memberRepository = context.getBean(MemberRepository.class);
+        queryFactory = context.getBean(JPAQueryFactory.class);
+    }
+
+    @Benchmark
+    public List<MemberTeamDTO> searchByBuilder() {
+        return memberJpaRepository.searchByBuilder(teamCondition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDTO> searchByWhere() {
+        return memberJpaRepository.searchByWhere(teamCondition);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDTO> searchPageSimple() {
+        return memberRepository.searchPageSimple(ageCondition, PageRequest.of(page, 20));
+    }
+
+    @Benchmark
+    public Page<MemberTeamDTO> searchPageComplex() {
+        return memberRepository.searchPageComplex(ageCondition, PageRequest.of(page, 20));
+    }
+
+    @Benchmark
+    public List<MemberDTO> projectionBean() {
+        return queryFactory
+                .select(Projections.bean(MemberDTO.class, member.username, member.age))
+                .from(member)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberDTO> projectionFields() {
+        return queryFactory
+                .select(Projections.fields(MemberDTO.class, member.username, member.age))
+                .from(member)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberDTO> projectionConstructor() {
+        return queryFactory
+                .select(Projections.constructor(MemberDTO.class, member.username, member.age))
+                .from(member)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberDTO> projectionQueryProjection() {
+        return queryFactory
+                .select(new QMemberDTO(member.username, member.age))
+                .from(member)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberDTO> projectionDirect() {
+        return queryFactory
+                .select(new MemberDTOProjection(member.username, member.age))
+                .from(member)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<UserDTO> userProjectionBean() {
+        return queryFactory
+                .select(Projections.bean(UserDTO.class, member.username.as("name"), member.age))
+                .from(member)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<UserDTO> userProjectionFields() {
+        return queryFactory
+                .select(Projections.fields(UserDTO.class, member.username.as("name"), member.age))
+                .from(member)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<UserDTO> userProjectionDirect() {
+        return queryFactory
+                .select(new UserDTOProjection(member.username, member.age))
+                .from(member)
+                .fetch();
+    }
+}
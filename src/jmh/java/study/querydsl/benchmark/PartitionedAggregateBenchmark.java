@@ -0,0 +1,76 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.AggregateDTO;
+import study.querydsl.metrics.SqlStatementCounter;
+import study.querydsl.repository.PartitionedQueryExecutor;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 팀별 나이 집계를 단일 쿼리와 member.id 파티션 병렬 실행으로 비교한다.
+ * 기본 min-size (1만) 로는 BenchmarkContext 데이터가 한 파티션이 되므로 min-size 를 줄인 실행기를 따로 만든다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PartitionedAggregateBenchmark {
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private JPAQueryFactory queryFactory;
+    private TransactionTemplate readOnly;
+    private PartitionedQueryExecutor partitionedQueryExecutor;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkContext context) {
+        queryFactory = context.getBean(JPAQueryFactory.class);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        partitionedQueryExecutor = new PartitionedQueryExecutor(queryFactory, context.getBean(EntityManager.class), transactionManager,
+                context.getBean(SqlStatementCounter.class), parallelism, 10, 2, 1000, Duration.ofSeconds(30));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        partitionedQueryExecutor.destroy();
+    }
+
+    @Benchmark
+    public List<Tuple> singleQuery() {
+        return readOnly.execute(status -> queryFactory
+                .select(team.name, member.age.count(), member.age.sum(), member.age.min(), member.age.max())
+                .from(member)
+                .join(member.team, team)
+                .groupBy(team.name)
+                .fetch());
+    }
+
+    @Benchmark
+    public Map<String, AggregateDTO> partitioned() {
+        return partitionedQueryExecutor.aggregateBy(team.name, member.age,
+                query -> query.from(member).join(member.team, team));
+    }
+}
@@ -0,0 +1,87 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDTO;
+import study.querydsl.dto.QMemberTeamDTO;
+import study.querydsl.repository.MemberSearchTemplates;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 결과가 한 건인 조건으로 쿼리 생성 비용 (QueryDSL 트리 + JPQL 직렬화) 을 비교한다.
+ * 양쪽 모두 같은 조회 전용 트랜잭션 안에서 repository 프록시 (metrics aspect) 를 거치지 않고 바로 실행한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryTemplateBenchmark {
+
+    private MemberSearchTemplates memberSearchTemplates;
+    private JPAQueryFactory queryFactory;
+    private TransactionTemplate readOnly;
+
+    private final MemberSearchCondition condition = new MemberSearchCondition("member1", "team1", 0, 100);
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkContext context) {
+        memberSearchTemplates = context.getBean(MemberSearchTemplates.class);
+        queryFactory = context.getBean(JPAQueryFactory.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+    }
+
+    @Benchmark
+    public List<MemberTeamDTO> template() {
+        return readOnly.execute(status -> memberSearchTemplates.search(condition).getResultList());
+    }
+
+    @Benchmark
+    public List<MemberTeamDTO> querydsl() {
+        return readOnly.execute(status -> queryFactory
+                .select(new QMemberTeamDTO(member.id, member.username, member.age, team.id, team.name))
+                .from(member)
+                .join(member.team, team)
+                .where(
+                        member.username.eq(condition.getUsername()),
+                        team.name.eq(condition.getTeamName()),
+                        member.age.goe(condition.getAgeGoe()),
+                        member.age.loe(condition.getAgeLoe())
+                )
+                .fetch());
+    }
+
+    @Benchmark
+    public Long templateCount() {
+        return readOnly.execute(status -> memberSearchTemplates.count(condition).getSingleResult());
+    }
+
+    @Benchmark
+    public Long querydslCount() {
+        return readOnly.execute(status -> queryFactory
+                .select(member.count())
+                .from(member)
+                .join(member.team, team)
+                .where(
+                        member.username.eq(condition.getUsername()),
+                        team.name.eq(condition.getTeamName()),
+                        member.age.goe(condition.getAgeGoe()),
+                        member.age.loe(condition.getAgeLoe())
+                )
+                .fetchOne());
+    }
+}
@@ -0,0 +1,66 @@
+package study.querydsl.benchmark;
+
+import org.hibernate.jpa.QueryHints;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 엔티티 목록 로딩 한 번 (요청 하나) 당 비용을 읽기/쓰기 트랜잭션과 조회 전용 모드로 비교한다.
+ * 쓰기 트랜잭션은 엔티티마다 스냅샷을 만들고 커밋 시 flush 에서 dirty checking 을 하므로
+ * gc 프로파일러의 gc.alloc.rate.norm (B/op) 차이가 요청당 절약되는 힙, 점수 차이가 CPU 시간이다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReadOnlyLoadBenchmark {
+
+    private static final String MEMBERS_WITH_TEAM = "select m from Member m join fetch m.team";
+
+    private EntityManager em;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkContext context) {
+        em = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @Benchmark
+    public List<Member> readWriteTransaction() {
+        return readWrite.execute(status -> em.createQuery(MEMBERS_WITH_TEAM, Member.class)
+                .getResultList());
+    }
+
+    @Benchmark
+    public List<Member> readOnlyHint() {
+        return readWrite.execute(status -> em.createQuery(MEMBERS_WITH_TEAM, Member.class)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultList());
+    }
+
+    @Benchmark
+    public List<Member> readOnlyTransaction() {
+        return readOnly.execute(status -> em.createQuery(MEMBERS_WITH_TEAM, Member.class)
+                .getResultList());
+    }
+}
@@ -0,0 +1,67 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberRowBuffer;
+import study.querydsl.repository.MemberRowReader;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 전체 member 를 한 번 훑는 export 경로의 할당량 비교 (gc.alloc.rate.norm).
+ * stream 은 행마다 Object[] + 박싱 + DTO, rowBuffer 는 재사용 버퍼에 primitive 로 읽는다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RowBufferBenchmark {
+
+    private MemberRepository memberRepository;
+    private MemberRowReader memberRowReader;
+    private MemberRowBuffer buffer;
+
+    private final MemberSearchCondition condition = new MemberSearchCondition();
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkContext context) {
+        memberRepository = context.getBean(MemberRepository.class);
+        memberRowReader = context.getBean(MemberRowReader.class);
+        buffer = new MemberRowBuffer(1000);
+    }
+
+    @Benchmark
+    public void stream(Blackhole blackhole) {
+        memberRepository.searchStream(condition, dto -> {
+            blackhole.consume(dto.getMemberId());
+            blackhole.consume(dto.getAge());
+        });
+    }
+
+    @Benchmark
+    public void rowBuffer(Blackhole blackhole) {
+        memberRowReader.scan(condition, buffer, rows -> {
+            for (int i = 0; i < rows.size(); i++) {
+                blackhole.consume(rows.memberId(i));
+                blackhole.consume(rows.age(i));
+            }
+        });
+    }
+
+    @Benchmark
+    public void rowBufferToDto(Blackhole blackhole) {
+        memberRowReader.scan(condition, buffer, rows -> {
+            for (int i = 0; i < rows.size(); i++) {
+                blackhole.consume(rows.toDto(i));
+            }
+        });
+    }
+}
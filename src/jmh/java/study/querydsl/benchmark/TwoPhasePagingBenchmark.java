@@ -0,0 +1,51 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDTO;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * offset 이 커질 때 한 번에 join + projection 하는 페이징과 id 먼저 읽는 2단계 페이징 비교.
+ * 양쪽 모두 member.id 순으로 정렬하므로 같은 페이지를 읽는다.
+ * 큰 테이블은 -Pjmh 파라미터로 members 를 늘려서 실행 (예: members=1000000, page=49000).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TwoPhasePagingBenchmark {
+
+    @Param({"0", "100", "490"})
+    public int page;
+
+    private MemberRepository memberRepository;
+
+    private final MemberSearchCondition ageCondition = new MemberSearchCondition(null, null, 0, 100);
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkContext context) {
+        memberRepository = context.getBean(MemberRepository.class);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDTO> singleQuery() {
+        return memberRepository.searchPageSimple(ageCondition, PageRequest.of(page, 20));
+    }
+
+    @Benchmark
+    public Page<MemberTeamDTO> twoPhase() {
+        return memberRepository.searchPageTwoPhase(ageCondition, PageRequest.of(page, 20));
+    }
+}
@@ -0,0 +1,205 @@
+package study.querydsl.loadtest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.benchmark.EmbeddedApplication;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * /v2/members 에 동시 요청을 보내 처리량과 지연시간 분포를 측정한다.
+ * <pre>
+ * ./gradlew loadTest -PloadTestArgs="both 500 20000 100000"
+ *   mode(platform|virtual|both) concurrency requests members
+ *
+ * ./gradlew loadTest -PloadTestArgs="saturation 256 5000 100000 10"
+ *   saturation maxConcurrency requestsPerStep members poolSize
+ *   동시성을 2배씩 올리면서 요청 지연 중 커넥션 획득 대기 비율을 출력하고, 대기가 절반을 넘으면 멈춘다.
+ * </pre>
+ * 응답 캐시가 켜져 있으면 DB 까지 가지 않으므로 끄고 측정한다.
+ */
+public class MemberControllerLoadTest {
+
+    private static final int TEAMS = 10;
+    private static final String NO_RESPONSE_CACHE = "--member.web.response-cache.enabled=false";
+
+    public static void main(String[] args) throws Exception {
+        String mode = arg(args, 0, "both");
+        int concurrency = Integer.parseInt(arg(args, 1, "500"));
+        int requests = Integer.parseInt(arg(args, 2, "20000"));
+        int members = Integer.parseInt(arg(args, 3, "100000"));
+
+        if ("saturation".equals(mode)) {
+            saturation(concurrency, requests, members, Integer.parseInt(arg(args, 4, "10")));
+            return;
+        }
+
+        List<String> modes = "both".equals(mode) ? List.of("platform", "virtual") : List.of(mode);
+        for (String each : modes) {
+            run(each, concurrency, requests, members);
+        }
+    }
+
+    private static void run(String mode, int concurrency, int requests, int members) throws Exception {
+        String[] appArgs = "virtual".equals(mode)
+                ? new String[]{"--server.port=0", "--spring.profiles.active=virtual", NO_RESPONSE_CACHE}
+                : new String[]{"--server.port=0", "--spring.datasource.hikari.maximum-pool-size=20", "--member.web.max-concurrent-searches=40", NO_RESPONSE_CACHE};
+
+        ConfigurableApplicationContext context;
+        try {
+            context = EmbeddedApplication.start(WebApplicationType.SERVLET, members, TEAMS, appArgs);
+        } catch (RuntimeException e) {
+            System.out.printf("[%s] skipped: %s%n", mode, e.getMessage());
+            return;
+        }
+
+        try {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            LoadDriver driver = new LoadDriver(URI.create("http://localhost:" + port), concurrency);
+            driver.drive(Math.max(1, requests / 10));
+            LoadResult result = driver.drive(requests);
+            System.out.printf("[%s] %s%n", mode, result);
+        } finally {
+            context.close();
+        }
+    }
+
+    //prod 프로파일 (풀 설정) 에 풀 크기만 바꿔서 띄우고 Hikari 의 acquire 타이머 증가분으로 대기 시간을 계산
+    private static void saturation(int maxConcurrency, int requestsPerStep, int members, int poolSize) throws Exception {
+        ConfigurableApplicationContext context = EmbeddedApplication.start(WebApplicationType.SERVLET, members, TEAMS,
+                "--server.port=0",
+                "--spring.profiles.active=prod",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;QUERY_CACHE_SIZE=64",
+                "--spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                "--spring.datasource.hikari.minimum-idle=" + poolSize,
+                "--spring.datasource.hikari.connection-timeout=30000",
+                NO_RESPONSE_CACHE);
+
+        try {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+            new LoadDriver(URI.create("http://localhost:" + port), poolSize).drive(Math.max(1, requestsPerStep / 10));
+
+            System.out.printf("pool=%d%n%12s %12s %10s %10s %14s %10s%n",
+                    poolSize, "concurrency", "req/s", "p50(ms)", "p99(ms)", "acquire(ms)", "wait%");
+            for (int concurrency = 1; concurrency <= maxConcurrency; concurrency *= 2) {
+                Timer acquire = meterRegistry.get("hikaricp.connections.acquire").timer();
+                long acquireCount = acquire.count();
+                double acquireMillis = acquire.totalTime(TimeUnit.MILLISECONDS);
+
+                LoadResult result = new LoadDriver(URI.create("http://localhost:" + port), concurrency).drive(requestsPerStep);
+
+                double acquireMeanMillis = (acquire.totalTime(TimeUnit.MILLISECONDS) - acquireMillis)
+                        / Math.max(1, acquire.count() - acquireCount);
+                double waitShare = acquireMeanMillis / result.meanMillis();
+                System.out.printf("%12d %12.1f %10.2f %10.2f %14.3f %9.1f%%%n",
+                        concurrency, result.throughput(), result.percentileMillis(0.50), result.percentileMillis(0.99),
+                        acquireMeanMillis, waitShare * 100);
+
+                if (waitShare > 0.5) {
+                    System.out.printf("connection wait dominates from concurrency %d with pool size %d%n", concurrency, poolSize);
+                    break;
+                }
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    private static String arg(String[] args, int index, String defaultValue) {
+        return (args.length > index) ? args[index] : defaultValue;
+    }
+
+    public static class LoadDriver {
+
+        private final URI base;
+        private final int concurrency;
+        private final HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+
+        public LoadDriver(URI base, int concurrency) {
+            this.base = base;
+            this.concurrency = concurrency;
+        }
+
+        public LoadResult drive(int requests) throws InterruptedException {
+            long[] latencies = new long[requests];
+            AtomicInteger next = new AtomicInteger();
+            AtomicInteger errors = new AtomicInteger();
+
+            ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+            long start = System.nanoTime();
+            for (int i = 0; i < concurrency; i++) {
+                clients.execute(() -> {
+                    int n;
+                    while ((n = next.getAndIncrement()) < requests) {
+                        HttpRequest request = HttpRequest.newBuilder(base.resolve(
+                                "/v2/members?teamName=team" + (n % TEAMS) + "&page=" + (n % 50) + "&size=20")).build();
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[n] = System.nanoTime() - sent;
+                    }
+                });
+            }
+            clients.shutdown();
+            clients.awaitTermination(1, TimeUnit.HOURS);
+            long elapsed = System.nanoTime() - start;
+
+            return new LoadResult(requests, errors.get(), elapsed, latencies);
+        }
+    }
+
+    public static class LoadResult {
+
+        private final int requests;
+        private final int errors;
+        private final long elapsedNanos;
+        private final long[] sortedLatencies;
+
+        LoadResult(int requests, int errors, long elapsedNanos, long[] latencies) {
+            this.requests = requests;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+            this.sortedLatencies = latencies.clone();
+            Arrays.sort(sortedLatencies);
+        }
+
+        public double throughput() {
+            return requests / (elapsedNanos / 1_000_000_000.0);
+        }
+
+        public double meanMillis() {
+            return Arrays.stream(sortedLatencies).average().orElse(0) / 1_000_000.0;
+        }
+
+        public double percentileMillis(double percentile) {
+            int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, index)] / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("requests=%d errors=%d throughput=%.1f req/s p50=%.2fms p99=%.2fms max=%.2fms",
+                    requests, errors, throughput(), percentileMillis(0.50), percentileMillis(0.99), percentileMillis(1.0));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package study.querydsl.cache;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Member/Team 데이터가 커밋될 때마다 증가하는 버전. 응답 캐시는 이 버전이 같을 때만 재사용된다.
+ */
+@Component
+public class DataVersion {
+
+    private final AtomicLong version = new AtomicLong();
+
+    public long current() {
+        return version.get();
+    }
+
+    public void bump() {
+        version.incrementAndGet();
+    }
+
+    //트랜잭션 안이면 커밋 이후에, 아니면 바로 증가
+    public void bumpAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump();
+                }
+            });
+        } else {
+            bump();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package study.querydsl.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Member/Team 변경이 커밋된 뒤 {@link DataVersion} 을 올린다.
+ */
+@Component
+@RequiredArgsConstructor
+public class DataVersionListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private final EntityManagerFactory emf;
+    private final DataVersion dataVersion;
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        bumpIfTracked(event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        bumpIfTracked(event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        bumpIfTracked(event.getEntity());
+    }
+
+    //커밋 실패 시에도 버전을 올려 두면 캐시가 비워질 뿐 잘못된 응답을 주지는 않음
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+        bumpIfTracked(event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        bumpIfTracked(event.getEntity());
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        bumpIfTracked(event.getEntity());
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return true;
+    }
+
+    private void bumpIfTracked(Object entity) {
+        if (entity instanceof Member || entity instanceof Team) {
+            dataVersion.bump();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package study.querydsl.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * /v1~/v3/members 응답을 직렬화된 바이트로 캐시하고 ETag / 304 를 처리한다.
+ * 키는 정규화한 쿼리 파라미터 (조건 + 페이지), 값은 만들 당시의 {@link DataVersion} 과 함께 저장해서 버전이 바뀌면 버린다.
+ * 메모리는 바이트 크기 기준 (W-TinyLFU) 으로 제한한다.
+ * 캐시와 DataVersion 은 노드마다 따로 있으므로 다른 노드에서 커밋된 변경은 TTL (member.web.response-cache.ttl) 이 지나야 반영된다.
+ * 처음 응답을 만들 때 컨트롤러가 설정한 헤더도 함께 저장해서 캐시 응답에 그대로 붙인다. (쿠키는 제외)
+ */
+@Component
+public class MemberResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final Set<String> CACHED_PATHS = Set.of("/v1/members", "/v2/members", "/v3/members");
+    //write 에서 직접 설정하거나 클라이언트마다 달라야 하는 헤더
+    private static final Set<String> UNCACHED_HEADERS = Set.of(
+            HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_LENGTH, HttpHeaders.ETAG, HttpHeaders.SET_COOKIE, HttpHeaders.TRANSFER_ENCODING);
+
+    private final DataVersion dataVersion;
+    private final boolean enabled;
+    private final Cache<String, CachedResponse> cache;
+
+    public MemberResponseCacheFilter(DataVersion dataVersion,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${member.web.response-cache.enabled:true}") boolean enabled,
+                                     @Value("${member.web.response-cache.max-size:64MB}") DataSize maxSize,
+                                     @Value("${member.web.response-cache.ttl:60s}") Duration ttl) {
+        this.dataVersion = dataVersion;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .expireAfterWrite(ttl)
+                .weigher((String key, CachedResponse value) -> key.length() * 2 + value.weight())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "member.response.cache");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled
+                || !HttpMethod.GET.matches(request.getMethod())
+                || !CACHED_PATHS.contains(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        //조회보다 먼저 버전을 읽어야 조회 도중 커밋된 변경이 있어도 오래된 버전으로 저장됨
+        long version = dataVersion.current();
+        String key = cacheKey(request);
+
+        CachedResponse cached = cache.getIfPresent(key);
+        if (cached != null && cached.version() == version) {
+            cached.headers().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+            write(request, response, cached);
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+
+        byte[] body = wrapper.getContentAsByteArray();
+        CachedResponse created = new CachedResponse(version, wrapper.getContentType(), headers(wrapper), body, etag(version, body));
+        cache.put(key, created);
+
+        wrapper.resetBuffer();
+        write(request, response, created);
+    }
+
+    private static void write(HttpServletRequest request, HttpServletResponse response, CachedResponse cached) throws IOException {
+        response.setHeader(HttpHeaders.ETAG, cached.etag());
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && Arrays.stream(ifNoneMatch.split(",")).map(String::trim).anyMatch(cached.etag()::equals)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(cached.contentType());
+        response.setContentLength(cached.body().length);
+        response.getOutputStream().write(cached.body());
+    }
+
+    //컨트롤러가 설정한 헤더. 미스 응답에는 이미 쓰였으므로 히트일 때만 다시 붙인다
+    private static Map<String, List<String>> headers(HttpServletResponse response) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (String name : response.getHeaderNames()) {
+            if (UNCACHED_HEADERS.stream().noneMatch(name::equalsIgnoreCase)) {
+                headers.put(name, List.copyOf(response.getHeaders(name)));
+            }
+        }
+        return headers;
+    }
+
+    //파라미터 순서와 빈 값은 무시
+    private static String cacheKey(HttpServletRequest request) {
+        Map<String, String[]> params = new TreeMap<>();
+        request.getParameterMap().forEach((name, values) -> {
+            String[] nonEmpty = Arrays.stream(values).filter(StringUtils::hasText).toArray(String[]::new);
+            if (nonEmpty.length > 0) {
+                params.put(name, nonEmpty);
+            }
+        });
+
+        StringBuilder key = new StringBuilder(request.getRequestURI()).append('?');
+        params.forEach((name, values) -> key.append(name).append('=').append(String.join(",", values)).append('&'));
+        return key.toString();
+    }
+
+    private static String etag(long version, byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return "\"" + version + "-" + Long.toHexString(crc.getValue()) + "\"";
+    }
+
+    private record CachedResponse(long version, String contentType, Map<String, List<String>> headers, byte[] body, String etag) {
+
+        int weight() {
+            int weight = body.length;
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                weight += header.getKey().length() * 2;
+                for (String value : header.getValue()) {
+                    weight += value.length() * 2;
+                }
+            }
+            return weight;
+        }
+    }
+}
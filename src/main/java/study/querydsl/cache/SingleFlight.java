@@ -0,0 +1,88 @@
+package study.querydsl.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 같은 키로 동시에 들어온 호출은 먼저 들어온 호출 (leader) 의 실행 결과를 함께 받는다.
+ * 결과는 실행 중인 동안만 공유하고 보관하지 않는다. follower 는 자기가 도착하기 전에 시작된 조회의 결과를 받으므로
+ * 호출하는 쪽이 키에 {@link DataVersion} 을 넣어서 leader 시작 이후 커밋된 변경이 있으면 다른 키가 되게 한다.
+ * follower 는 followerTimeout 까지만 기다리고 {@link QueryTimeoutException} 을 던진다. leader 실행은 계속된다.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Duration followerTimeout;
+    private final Counter leaders;
+    private final Counter followers;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry, Duration followerTimeout) {
+        this.followerTimeout = followerTimeout;
+        this.leaders = Counter.builder("member.singleflight.calls")
+                .tag("name", name)
+                .tag("role", "leader")
+                .register(meterRegistry);
+        this.followers = Counter.builder("member.singleflight.calls")
+                .tag("name", name)
+                .tag("role", "follower")
+                .register(meterRegistry);
+        Gauge.builder("member.singleflight.coalescing.ratio", this, SingleFlight::coalescingRatio)
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public V execute(K key, Supplier<V> supplier) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            followers.increment();
+            return await(existing);
+        }
+
+        leaders.increment();
+        try {
+            V result = supplier.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    public double coalescingRatio() {
+        double total = leaders.count() + followers.count();
+        return (total == 0) ? 0 : followers.count() / total;
+    }
+
+    private V await(CompletableFuture<V> flight) {
+        try {
+            return flight.get(followerTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new QueryTimeoutException("In-flight call did not complete within " + followerTimeout.toMillis() + "ms", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for in-flight call", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
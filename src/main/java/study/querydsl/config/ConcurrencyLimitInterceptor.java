@@ -0,0 +1,41 @@
+package study.querydsl.config;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT = ConcurrencyLimitInterceptor.class.getName() + ".PERMIT";
+
+    private final Semaphore permits;
+    private final long timeoutNanos;
+
+    public ConcurrencyLimitInterceptor(int maxConcurrent, Duration timeout) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many concurrent searches");
+        }
+        request.setAttribute(PERMIT, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(PERMIT) != null) {
+            request.removeAttribute(PERMIT);
+            permits.release();
+        }
+    }
+}
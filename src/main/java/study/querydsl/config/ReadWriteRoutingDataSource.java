@@ -0,0 +1,77 @@
+package study.querydsl.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * readOnly 트랜잭션은 replica, 나머지는 primary 로 보낸다.
+ * 트랜잭션 시작 시점에는 readOnly 여부가 아직 설정되지 않으므로 LazyConnectionDataSourceProxy 로 감싸서 사용해야 한다.
+ * readYourWritesWindow 가 0 보다 크면 세션 ({@link #bindSession}) 별로 primary 쓰기 커밋 이후 그 시간 동안은
+ * 같은 세션의 readOnly 도 primary 에서 읽는다. (복제 지연 대비) 세션이 없는 스레드는 항상 replica 에서 읽는다.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private final ThreadLocal<String> session = new ThreadLocal<>();
+    //window 동안만 남아 있으므로 항목이 있으면 최근에 쓴 세션
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, Duration readYourWritesWindow) {
+        this.recentWriters = readYourWritesWindow.isZero() ? null : Caffeine.newBuilder()
+                .expireAfterWrite(readYourWritesWindow)
+                .maximumSize(100_000)
+                .build();
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    public void bindSession(String sessionId) {
+        session.set(sessionId);
+    }
+
+    public void unbindSession() {
+        session.remove();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return currentRoute();
+    }
+
+    public Route currentRoute() {
+        String sessionId = session.get();
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return recentlyWrote(sessionId) ? Route.PRIMARY : Route.REPLICA;
+        }
+
+        if (recentWriters != null && sessionId != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recentWriters.put(sessionId, Boolean.TRUE);
+                }
+            });
+        }
+        return Route.PRIMARY;
+    }
+
+    //바인딩된 세션이 window 안에 쓴 적이 있으면 true
+    public boolean isRecentWriter() {
+        return recentlyWrote(session.get());
+    }
+
+    private boolean recentlyWrote(String sessionId) {
+        return recentWriters != null && sessionId != null && recentWriters.getIfPresent(sessionId) != null;
+    }
+}
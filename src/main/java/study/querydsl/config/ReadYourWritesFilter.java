@@ -0,0 +1,52 @@
+package study.querydsl.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * 클라이언트별 쿠키로 요청을 {@link ReadWriteRoutingDataSource} 세션에 바인딩한다.
+ * 같은 클라이언트가 쓰기 직후에 보낸 조회만 primary 에서 읽고, 다른 클라이언트의 조회는 replica 에 그대로 남는다.
+ * 쓰기 직후인 요청에는 {@link #RECENT_WRITER_ATTRIBUTE} 를 남겨서 다른 요청의 (replica) 결과를 공유하지 않게 한다.
+ */
+@RequiredArgsConstructor
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE_NAME = "member-rw-session";
+    public static final String RECENT_WRITER_ATTRIBUTE = ReadYourWritesFilter.class.getName() + ".RECENT_WRITER";
+
+    private final ReadWriteRoutingDataSource routingDataSource;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        Cookie cookie = WebUtils.getCookie(request, COOKIE_NAME);
+        String sessionId = (cookie != null) ? cookie.getValue() : newSession(response);
+
+        routingDataSource.bindSession(sessionId);
+        if (routingDataSource.isRecentWriter()) {
+            request.setAttribute(RECENT_WRITER_ATTRIBUTE, Boolean.TRUE);
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            routingDataSource.unbindSession();
+        }
+    }
+
+    private static String newSession(HttpServletResponse response) {
+        String sessionId = UUID.randomUUID().toString();
+        Cookie cookie = new Cookie(COOKIE_NAME, sessionId);
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        response.addCookie(cookie);
+        return sessionId;
+    }
+}
@@ -0,0 +1,55 @@
+package study.querydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * member.datasource.routing=true 이면 spring.datasource 를 primary, member.datasource.replica 를 replica 로 쓰는
+ * 라우팅 DataSource 를 등록한다. read-your-writes 는 {@link ReadYourWritesFilter} 의 클라이언트 쿠키 단위로 추적한다.
+ */
+@Configuration
+@ConditionalOnProperty(name = "member.datasource.routing", havingValue = "true")
+public class RoutingDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+    }
+
+    //replica 는 Hikari 설정 키를 그대로 사용 (jdbc-url, username, maximum-pool-size ...)
+    @Bean
+    @ConfigurationProperties("member.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        return new HikariDataSource();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 @Value("${member.datasource.read-your-writes-window:0s}") Duration readYourWritesWindow) {
+        return new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource, readYourWritesWindow));
+    }
+
+    //p6spy 가 dataSource 를 감싸도 unwrap 으로 라우팅 DataSource 를 찾음
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(DataSource dataSource) throws SQLException {
+        return new ReadYourWritesFilter(dataSource.unwrap(ReadWriteRoutingDataSource.class));
+    }
+}
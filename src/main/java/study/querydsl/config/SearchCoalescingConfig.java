@@ -0,0 +1,22 @@
+package study.querydsl.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Page;
+import study.querydsl.cache.SingleFlight;
+import study.querydsl.dto.MemberTeamDTO;
+
+import java.time.Duration;
+
+@Configuration
+public class SearchCoalescingConfig {
+
+    //키는 (엔드포인트, 정규화한 조건, Pageable, count 전략)
+    @Bean
+    public SingleFlight<Object, Page<MemberTeamDTO>> memberSearchFlight(MeterRegistry meterRegistry,
+                                                                       @Value("${member.web.search-coalescing-timeout:30s}") Duration followerTimeout) {
+        return new SingleFlight<>("member.search", meterRegistry, followerTimeout);
+    }
+}
@@ -0,0 +1,52 @@
+package study.querydsl.config;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class WebConcurrencyConfig implements WebMvcConfigurer {
+
+    @Value("${member.web.max-concurrent-searches:0}")
+    private int maxConcurrentSearches;
+
+    @Value("${member.web.search-queue-timeout:10s}")
+    private Duration searchQueueTimeout;
+
+    /**
+     * 검색 요청이 스레드가 아니라 커넥션 수에 맞춰 대기하도록 동시 실행 수를 제한한다. (0 이면 제한 없음)
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (maxConcurrentSearches > 0) {
+            registry.addInterceptor(new ConcurrencyLimitInterceptor(maxConcurrentSearches, searchQueueTimeout))
+                    .addPathPatterns("/v1/members", "/v2/members", "/v3/members", "/v4/members");
+        }
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "member.web.virtual-threads", havingValue = "true")
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    //컴파일 대상은 17 이므로 JDK 21+ 에서 실행될 때만 리플렉션으로 사용
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("member.web.virtual-threads requires a JDK 21+ runtime, current: "
+                    + Runtime.version(), e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequiredArgsConstructor
+public class CacheStatisticsController {
+
+    private final EntityManagerFactory emf;
+
+    @GetMapping("/v1/cache/statistics")
+    public Map<String, Object> statistics() {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("secondLevelCacheHitCount", statistics.getSecondLevelCacheHitCount());
+        result.put("secondLevelCacheMissCount", statistics.getSecondLevelCacheMissCount());
+        result.put("secondLevelCachePutCount", statistics.getSecondLevelCachePutCount());
+        result.put("queryCacheHitCount", statistics.getQueryCacheHitCount());
+        result.put("queryCacheMissCount", statistics.getQueryCacheMissCount());
+        result.put("queryCachePutCount", statistics.getQueryCachePutCount());
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String region : new String[]{Team.class.getName(), Team.class.getName() + ".members", Member.class.getName()}) {
+            CacheRegionStatistics regionStatistics = statistics.getDomainDataRegionStatistics(region);
+            regions.put(region, Map.of(
+                    "hitCount", regionStatistics.getHitCount(),
+                    "missCount", regionStatistics.getMissCount(),
+                    "putCount", regionStatistics.getPutCount(),
+                    "elementCountInMemory", regionStatistics.getElementCountInMemory()
+            ));
+        }
+        result.put("regions", regions);
+        return result;
+    }
+}
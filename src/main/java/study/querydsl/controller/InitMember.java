@@ -1,45 +1,26 @@
 package study.querydsl.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
-import study.querydsl.entity.Member;
-import study.querydsl.entity.Team;
+import study.querydsl.service.MemberImportService;
 
 import javax.annotation.PostConstruct;
-import javax.persistence.EntityManager;
-import javax.persistence.PersistenceContext;
+import java.util.List;
 
 @Profile("local")
 @Component
 @RequiredArgsConstructor
 public class InitMember {
 
-    private final InitMemberService initMemberService;
+    private final MemberImportService memberImportService;
+
+    @Value("${member.init.count:100}")
+    private int memberCount;
 
     @PostConstruct
     public void init() {
-        initMemberService.init();
-    }
-
-    @Component
-    static class InitMemberService {
-        @PersistenceContext
-        EntityManager em;
-
-        @Transactional
-        public void init() {
-
-            Team teamA = new Team("teamA");
-            Team teamB = new Team("teamB");
-
-            em.persist(teamA);
-            em.persist(teamB);
-
-            for(int i=0; i<100; i++) {
-                em.persist(new Member("member" + i, i, (i % 2 == 0) ? teamA : teamB));
-            }
-        }
+        memberImportService.importMembers(memberCount, List.of("teamA", "teamB"));
     }
 }
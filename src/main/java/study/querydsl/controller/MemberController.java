@@ -1,36 +1,200 @@
 package study.querydsl.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+import study.querydsl.cache.DataVersion;
+import study.querydsl.cache.SingleFlight;
+import study.querydsl.config.ReadYourWritesFilter;
+import study.querydsl.dto.MemberImportResultDTO;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDTO;
+import study.querydsl.dto.MemberTeamSliceDTO;
+import study.querydsl.repository.CountStrategy;
 import study.querydsl.repository.MemberJpaRepository;
 import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberRowBuffer;
+import study.querydsl.repository.MemberRowReader;
+import study.querydsl.service.MemberImportService;
+import study.querydsl.service.MemberSearchStreamService;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
+    private static final int EXPORT_BUFFER_ROWS = 1000;
+    private static final int MAX_SLICE_SIZE = 100;
+    private static final int MAX_STREAM_PAGE_SIZE = 1000;
+
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final MemberImportService memberImportService;
+    private final MemberSearchStreamService memberSearchStreamService;
+    private final MemberRowReader memberRowReader;
+    private final ObjectMapper objectMapper;
+    private final SingleFlight<Object, Page<MemberTeamDTO>> memberSearchFlight;
+    private final DataVersion dataVersion;
 
     @GetMapping("/v1/members")
     public List<MemberTeamDTO> searchMemberV1(MemberSearchCondition condition) {
         return memberJpaRepository.searchByWhere(condition);
     }
 
+    //동시에 들어온 같은 검색은 DB 조회 한 번을 공유
     @GetMapping("/v2/members")
-    public Page<MemberTeamDTO> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageSimple(condition, pageable);
+    public Page<MemberTeamDTO> searchMemberV2(MemberSearchCondition condition, Pageable pageable,
+                                              @RequestAttribute(name = ReadYourWritesFilter.RECENT_WRITER_ATTRIBUTE, required = false) Boolean recentWriter) {
+        return coalesce(new SearchKey("v2", condition.normalized(), pageable, null, dataVersion.current()), recentWriter,
+                () -> memberRepository.searchPageSimple(condition, pageable));
     }
 
     @GetMapping("/v3/members")
-    public Page<MemberTeamDTO> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageComplex(condition, pageable);
+    public Page<MemberTeamDTO> searchMemberV3(MemberSearchCondition condition, Pageable pageable,
+                                              @RequestParam(defaultValue = "EXACT") CountStrategy count,
+                                              @RequestAttribute(name = ReadYourWritesFilter.RECENT_WRITER_ATTRIBUTE, required = false) Boolean recentWriter) {
+        return coalesce(new SearchKey("v3", condition.normalized(), pageable, count, dataVersion.current()), recentWriter, () -> {
+            if (count == CountStrategy.EXACT) {
+                return memberRepository.searchPageComplex(condition, pageable);
+            }
+            return memberRepository.searchPage(condition, pageable, count);
+        });
+    }
+
+    @GetMapping("/v4/members")
+    public MemberTeamSliceDTO searchMemberV4(MemberSearchCondition condition,
+                                             @RequestParam(required = false) String cursor,
+                                             @RequestParam(defaultValue = "20") int size) {
+        if (size < 1 || size > MAX_SLICE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be between 1 and " + MAX_SLICE_SIZE);
+        }
+        //잘못된 cursor
+        try {
+            return memberRepository.searchSlice(condition, cursor, size);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @GetMapping(value = "/v5/members", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MemberTeamDTO> searchMemberV5(MemberSearchCondition condition,
+                                              @RequestParam(defaultValue = "500") int pageSize) {
+        if (pageSize < 1 || pageSize > MAX_STREAM_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "pageSize must be between 1 and " + MAX_STREAM_PAGE_SIZE);
+        }
+        return memberSearchStreamService.search(condition, pageSize);
+    }
+
+    @GetMapping("/v1/members/export")
+    public ResponseEntity<StreamingResponseBody> exportMembers(MemberSearchCondition condition,
+                                                               @RequestParam(defaultValue = "ndjson") String format) {
+        if ("csv".equalsIgnoreCase(format)) {
+            return ResponseEntity.ok()
+                    .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                    .body(outputStream -> exportCsv(condition, outputStream));
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            memberRepository.searchStream(condition, dto -> {
+                try {
+                    writer.write(objectMapper.writeValueAsString(dto));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @PostMapping("/v1/members/import")
+    public MemberImportResultDTO importMembers(@RequestParam int count,
+                                               @RequestParam(defaultValue = "teamA,teamB") List<String> teams) {
+        return memberImportService.importMembers(count, teams);
+    }
+
+    private void exportCsv(MemberSearchCondition condition, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writer.write("memberId,username,age,teamId,teamName\n");
+        memberRowReader.scan(condition, new MemberRowBuffer(EXPORT_BUFFER_ROWS), new CsvRowWriter(writer));
+        writer.flush();
+    }
+
+    /**
+     * CSV 는 DTO 없이 row buffer 에서 바로 BufferedWriter 에 쓴다.
+     */
+    private static class CsvRowWriter implements Consumer<MemberRowBuffer> {
+
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void accept(MemberRowBuffer rows) {
+            try {
+                for (int i = 0; i < rows.size(); i++) {
+                    writer.append(String.valueOf(rows.memberId(i))).append(',')
+                            .append(csvValue(rows.username(i))).append(',')
+                            .append(String.valueOf(rows.age(i))).append(',');
+                    if (rows.hasTeam(i)) {
+                        writer.append(String.valueOf(rows.teamId(i)));
+                    }
+                    writer.append(',').append(csvValue(rows.teamName(i))).append('\n');
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static String csvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    //키에 도착 시점의 데이터 버전을 넣어서 그 뒤에 커밋된 변경이 있으면 먼저 시작한 조회에 합류하지 않음.
+    //쓰기 직후인 클라이언트는 다른 요청의 replica 조회를 받으면 안 되므로 합치지 않고 직접 실행
+    private Page<MemberTeamDTO> coalesce(SearchKey key, Boolean recentWriter, Supplier<Page<MemberTeamDTO>> search) {
+        if (Boolean.TRUE.equals(recentWriter)) {
+            return search.get();
+        }
+        return memberSearchFlight.execute(key, search);
+    }
+
+    private record SearchKey(String endpoint, MemberSearchCondition condition, Pageable pageable, CountStrategy count, long dataVersion) {
     }
 }
@@ -0,0 +1,21 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.TeamStatisticsDTO;
+import study.querydsl.repository.TeamStatisticsRepository;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamStatisticsController {
+
+    private final TeamStatisticsRepository teamStatisticsRepository;
+
+    @GetMapping("/v1/teams/statistics")
+    public List<TeamStatisticsDTO> statistics() {
+        return teamStatisticsRepository.findAll();
+    }
+}
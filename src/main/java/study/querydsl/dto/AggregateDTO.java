@@ -0,0 +1,35 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 정수 컬럼 count/sum/min/max 부분 집계. avg 는 합친 뒤 sum / count 로 계산한다.
+ */
+@Data
+@NoArgsConstructor
+public class AggregateDTO {
+    private long count;
+    private long sum;
+    private Long min;
+    private Long max;
+
+    public AggregateDTO(long count, long sum, Long min, Long max) {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    public AggregateDTO merge(AggregateDTO other) {
+        return new AggregateDTO(
+                count + other.count,
+                sum + other.sum,
+                min == null ? other.min : other.min == null ? min : Math.min(min, other.min),
+                max == null ? other.max : other.max == null ? max : Math.max(max, other.max));
+    }
+
+    public Double getAvg() {
+        return count > 0 ? (double) sum / count : null;
+    }
+}
@@ -3,6 +3,7 @@ package study.querydsl.dto;
 import com.querydsl.core.annotations.QueryProjection;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import study.querydsl.projection.DirectProjection;
 
 @Data
 @NoArgsConstructor
@@ -12,6 +13,7 @@ public class MemberDTO {
     private int age;
 
     @QueryProjection
+    @DirectProjection
     public MemberDTO(String username, int age) {
         this.username = username;
         this.age = age;
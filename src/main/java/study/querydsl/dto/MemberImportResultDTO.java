@@ -0,0 +1,15 @@
+package study.querydsl.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MemberImportResultDTO {
+    private long members;
+    private int teams;
+    private long elapsedMillis;
+    private long rowsPerSecond;
+}
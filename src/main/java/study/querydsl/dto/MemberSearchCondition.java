@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import static org.springframework.util.StringUtils.hasText;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -13,4 +15,14 @@ public class MemberSearchCondition {
     private String teamName;
     private Integer ageGoe;
     private Integer ageLoe;
+
+    //빈 문자열 조건은 검색에서 무시되므로 null과 같은 키로 취급
+    public MemberSearchCondition normalized() {
+        return new MemberSearchCondition(
+                hasText(username) ? username : null,
+                hasText(teamName) ? teamName : null,
+                ageGoe,
+                ageLoe
+        );
+    }
 }
@@ -3,6 +3,7 @@ package study.querydsl.dto;
 import com.querydsl.core.annotations.QueryProjection;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import study.querydsl.projection.DirectProjection;
 
 @Data
 @NoArgsConstructor
@@ -14,6 +15,7 @@ public class MemberTeamDTO {
     private String teamName;
 
     @QueryProjection
+    @DirectProjection
     public MemberTeamDTO(Long memberId, String username, int age, Long teamId, String teamName) {
         this.memberId = memberId;
         this.username = username;
@@ -0,0 +1,16 @@
+package study.querydsl.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MemberTeamSliceDTO {
+    private List<MemberTeamDTO> content;
+    private String nextCursor;
+    private boolean hasNext;
+}
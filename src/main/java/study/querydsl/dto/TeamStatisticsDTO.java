@@ -0,0 +1,32 @@
+package study.querydsl.dto;
+
+import com.querydsl.core.annotations.QueryProjection;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import study.querydsl.projection.DirectProjection;
+
+@Data
+@NoArgsConstructor
+public class TeamStatisticsDTO {
+    private Long teamId;
+    private String teamName;
+    private long memberCount;
+    private long ageSum;
+    private Integer ageMin;
+    private Integer ageMax;
+
+    @QueryProjection
+    @DirectProjection
+    public TeamStatisticsDTO(Long teamId, String teamName, long memberCount, long ageSum, Integer ageMin, Integer ageMax) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.memberCount = memberCount;
+        this.ageSum = ageSum;
+        this.ageMin = ageMin;
+        this.ageMax = ageMax;
+    }
+
+    public Double getAgeAvg() {
+        return memberCount > 0 ? (double) ageSum / memberCount : null;
+    }
+}
@@ -1,13 +1,18 @@
 package study.querydsl.dto;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import study.querydsl.projection.DirectProjection;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class UserDTO {
     private String name;
     private int age;
+
+    @DirectProjection
+    public UserDTO(String name, int age) {
+        this.name = name;
+        this.age = age;
+    }
 }
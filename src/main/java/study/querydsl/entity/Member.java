@@ -1,17 +1,31 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import study.querydsl.repository.InMemoryMemberIndexListener;
 
 import javax.persistence.*;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_team_age", columnList = "team_id, age")
+})
+@NamedEntityGraph(name = "Member.team", attributeNodes = @NamedAttributeNode("team"))
+@EntityListeners(InMemoryMemberIndexListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
 public class Member {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50)
     @Column(name = "member_id")
     private Long id;
     private String username;
@@ -1,24 +1,35 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import study.querydsl.repository.InMemoryMemberIndexListener;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Table(indexes = @Index(name = "idx_team_name", columnList = "name"))
+@EntityListeners(InMemoryMemberIndexListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "name"})
 public class Team {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "team_seq_generator")
+    @SequenceGenerator(name = "team_seq_generator", sequenceName = "team_seq", allocationSize = 50)
     @Column(name = "team_id")
     private Long id;
     private String name;
 
     @OneToMany(mappedBy = "team")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     List<Member> members = new ArrayList<>();
 
     public Team(String name) {
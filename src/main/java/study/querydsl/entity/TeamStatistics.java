@@ -0,0 +1,30 @@
+package study.querydsl.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * team 별 member 집계. Member 변경 시 TeamStatisticsListener 가 SQL 로 갱신하므로 JPA 로는 읽기만 한다.
+ */
+@Entity
+@Immutable
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class TeamStatistics {
+
+    @Id
+    @Column(name = "team_id")
+    private Long teamId;
+    private long memberCount;
+    private long ageSum;
+    private Integer ageMin;
+    private Integer ageMax;
+}
@@ -0,0 +1,60 @@
+package study.querydsl.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /actuator/queries - 리포지토리 메서드별 시간/건수, 요청당 SQL 수, 최근 slow query
+ */
+@Component
+@Endpoint(id = "queries")
+@RequiredArgsConstructor
+public class QueryMetricsEndpoint {
+
+    private final MeterRegistry meterRegistry;
+    private final SlowQueryLog slowQueryLog;
+
+    @ReadOperation
+    public Map<String, Object> queries() {
+        Map<String, Object> methods = new TreeMap<>();
+        for (Timer timer : meterRegistry.find(RepositoryMetricsAspect.TIMER).timers()) {
+            String key = timer.getId().getTag("class") + "." + timer.getId().getTag("method");
+            @SuppressWarnings("unchecked")
+            Map<String, Object> stats = (Map<String, Object>) methods.computeIfAbsent(key, k -> new LinkedHashMap<String, Object>());
+            stats.merge("count", timer.count(), (a, b) -> (Long) a + (Long) b);
+            stats.merge("totalMillis", timer.totalTime(TimeUnit.MILLISECONDS), (a, b) -> (Double) a + (Double) b);
+            stats.merge("maxMillis", timer.max(TimeUnit.MILLISECONDS), (a, b) -> Math.max((Double) a, (Double) b));
+        }
+        for (DistributionSummary rows : meterRegistry.find(RepositoryMetricsAspect.ROWS).summaries()) {
+            String key = rows.getId().getTag("class") + "." + rows.getId().getTag("method");
+            @SuppressWarnings("unchecked")
+            Map<String, Object> stats = (Map<String, Object>) methods.computeIfAbsent(key, k -> new LinkedHashMap<String, Object>());
+            stats.put("rows", rows.totalAmount());
+        }
+
+        Map<String, Object> requests = new TreeMap<>();
+        for (DistributionSummary statements : meterRegistry.find("member.request.sql.statements").summaries()) {
+            requests.put(statements.getId().getTag("uri"), Map.of(
+                    "requests", statements.count(),
+                    "avgStatements", statements.mean(),
+                    "maxStatements", statements.max()
+            ));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("methods", methods);
+        result.put("requests", requests);
+        result.put("slowQueries", slowQueryLog.recent());
+        return result;
+    }
+}
@@ -0,0 +1,101 @@
+package study.querydsl.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.BulkMutationResultDTO;
+import study.querydsl.dto.MemberTeamSliceDTO;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RepositoryMetricsAspect {
+
+    static final String TIMER = "member.repository";
+    static final String ROWS = "member.repository.rows";
+
+    private final MeterRegistry meterRegistry;
+    private final SlowQueryLog slowQueryLog;
+
+    //매 호출마다 builder 로 meter 를 찾지 않도록 메서드별로 한 번만 등록
+    private final Map<Method, MethodMeters> meters = new ConcurrentHashMap<>();
+
+    @Around("execution(public * study.querydsl.repository.MemberRepositoryImpl.*(..))" +
+            " || execution(public * study.querydsl.repository.MemberJpaRepository.*(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        MethodMeters methodMeters = meters.computeIfAbsent(((MethodSignature) joinPoint.getSignature()).getMethod(), this::register);
+
+        long start = System.nanoTime();
+        String exception = null;
+        try {
+            Object result = joinPoint.proceed();
+            methodMeters.rows().record(rows(result));
+            return result;
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            Timer timer = (exception == null) ? methodMeters.timer() : timer(methodMeters.className(), methodMeters.method(), exception);
+            timer.record(elapsed, TimeUnit.NANOSECONDS);
+            slowQueryLog.record(methodMeters.className() + "." + methodMeters.method(), () -> Arrays.toString(joinPoint.getArgs()), elapsed);
+        }
+    }
+
+    private MethodMeters register(Method method) {
+        String className = method.getDeclaringClass().getSimpleName();
+        String methodName = method.getName();
+        return new MethodMeters(className, methodName,
+                timer(className, methodName, "none"),
+                DistributionSummary.builder(ROWS)
+                        .tag("class", className)
+                        .tag("method", methodName)
+                        .register(meterRegistry));
+    }
+
+    private Timer timer(String className, String method, String exception) {
+        return Timer.builder(TIMER)
+                .tag("class", className)
+                .tag("method", method)
+                .tag("exception", exception)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    private long rows(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Slice<?> slice) {
+            return slice.getNumberOfElements();
+        }
+        if (result instanceof MemberTeamSliceDTO slice) {
+            return slice.getContent().size();
+        }
+        if (result instanceof BulkMutationResultDTO bulk) {
+            return bulk.getAffectedRows();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        return (result != null) ? 1 : 0;
+    }
+
+    private record MethodMeters(String className, String method, Timer timer, DistributionSummary rows) {
+    }
+}
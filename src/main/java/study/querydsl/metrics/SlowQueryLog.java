@@ -0,0 +1,58 @@
+package study.querydsl.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@Slf4j
+@Component
+public class SlowQueryLog {
+
+    private final long thresholdNanos;
+    private final int capacity;
+    private final Deque<SlowQuery> recent = new ArrayDeque<>();
+
+    public SlowQueryLog(@Value("${member.metrics.slow-query-threshold:200ms}") Duration threshold,
+                        @Value("${member.metrics.slow-query-capacity:100}") int capacity) {
+        this.thresholdNanos = threshold.toNanos();
+        this.capacity = capacity;
+    }
+
+    /**
+     * query 는 threshold 를 넘었을 때만 만든다 (매 호출마다 문자열을 만들지 않도록).
+     */
+    public void record(String source, Supplier<String> query, long elapsedNanos) {
+        if (elapsedNanos < thresholdNanos) {
+            return;
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        String formatted = query.get();
+        log.warn("slow query: {} took {}ms - {}", source, elapsedMillis, formatted);
+
+        synchronized (recent) {
+            if (recent.size() >= capacity) {
+                recent.removeFirst();
+            }
+            recent.addLast(new SlowQuery(Instant.now(), source, formatted, elapsedMillis));
+        }
+    }
+
+    public List<SlowQuery> recent() {
+        synchronized (recent) {
+            return new ArrayList<>(recent);
+        }
+    }
+
+    public record SlowQuery(Instant timestamp, String source, String query, long elapsedMillis) {
+    }
+}
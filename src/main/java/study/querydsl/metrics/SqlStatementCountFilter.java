@@ -0,0 +1,44 @@
+package study.querydsl.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@RequiredArgsConstructor
+public class SqlStatementCountFilter extends OncePerRequestFilter {
+
+    private final SqlStatementCounter sqlStatementCounter;
+    private final MeterRegistry meterRegistry;
+    //uri 패턴 수만큼만 생기므로 등록한 meter 를 재사용
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        sqlStatementCounter.reset();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            summaries.computeIfAbsent((pattern != null) ? pattern.toString() : "UNKNOWN", this::register)
+                    .record(sqlStatementCounter.count());
+        }
+    }
+
+    private DistributionSummary register(String uri) {
+        return DistributionSummary.builder("member.request.sql.statements")
+                .tag("uri", uri)
+                .register(meterRegistry);
+    }
+}
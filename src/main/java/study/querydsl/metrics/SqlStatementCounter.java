@@ -0,0 +1,65 @@
+package study.querydsl.metrics;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * p6spy 가 감싼 DataSource 에서 실행되는 모든 SQL 을 센다.
+ * 요청 단위 개수는 {@link SqlStatementCountFilter} 가 스레드별 카운터를 새로 만들고 수집한다.
+ * 다른 스레드에서 실행되는 쿼리 (async count, parallel page, 파티션 조회) 는 작업을 {@link #propagate} 로 감싸야 요청 카운터에 더해진다.
+ * slow query 로그에는 바인딩 값 (개인정보) 없이 SQL 만 남긴다.
+ */
+@Component
+public class SqlStatementCounter extends SimpleJdbcEventListener {
+
+    private final ThreadLocal<AtomicInteger> statements = ThreadLocal.withInitial(AtomicInteger::new);
+    private final Timer timer;
+    private final SlowQueryLog slowQueryLog;
+
+    public SqlStatementCounter(MeterRegistry meterRegistry, SlowQueryLog slowQueryLog) {
+        this.timer = Timer.builder("member.sql.statements")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        statements.get().incrementAndGet();
+        timer.record(timeElapsedNanos, TimeUnit.NANOSECONDS);
+        slowQueryLog.record("sql", statementInformation::getSql, timeElapsedNanos);
+    }
+
+    //이전 요청의 작업이 늦게 끝나도 새 요청 카운터에 섞이지 않도록 초기화 대신 새로 만든다
+    public void reset() {
+        statements.set(new AtomicInteger());
+    }
+
+    public int count() {
+        return statements.get().get();
+    }
+
+    /**
+     * 호출한 스레드의 카운터를 작업 스레드에서도 쓰도록 감싼다.
+     */
+    public <T> Supplier<T> propagate(Supplier<T> task) {
+        AtomicInteger caller = statements.get();
+        return () -> {
+            AtomicInteger previous = statements.get();
+            statements.set(caller);
+            try {
+                return task.get();
+            } finally {
+                statements.set(previous);
+            }
+        };
+    }
+}
@@ -0,0 +1,119 @@
+package study.querydsl.repository;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.metrics.SqlStatementCounter;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+@Component
+public class AsyncQueryExecutor implements DisposableBean {
+
+    //대기열이 차면 RejectedExecutionException. 아무도 기다리지 않는 쿼리가 무한히 쌓이지 않게 함
+    private final ExecutorService executor;
+    //searchPageParallel 전용. 대기열이 차면 RejectedExecutionException 으로 바로 거절해서 호출자가 순차 실행으로 내려가게 함
+    private final ExecutorService pageExecutor;
+    private final PlatformTransactionManager transactionManager;
+    private final SqlStatementCounter sqlStatementCounter;
+    private final EntityManager em;
+
+    public AsyncQueryExecutor(@Value("${member.query.async-threads:4}") int threads,
+                              @Value("${member.query.async-queue-capacity:64}") int queueCapacity,
+                              @Value("${member.query.parallel-page.threads:4}") int pageThreads,
+                              @Value("${member.query.parallel-page.queue-capacity:16}") int pageQueueCapacity,
+                              PlatformTransactionManager transactionManager,
+                              SqlStatementCounter sqlStatementCounter,
+                              EntityManager em) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("query-"));
+        this.pageExecutor = new ThreadPoolExecutor(pageThreads, pageThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(pageQueueCapacity), new CustomizableThreadFactory("page-query-"));
+        this.transactionManager = transactionManager;
+        this.sqlStatementCounter = sqlStatementCounter;
+        this.em = em;
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(sqlStatementCounter.propagate(query), executor);
+    }
+
+    /**
+     * 별도 스레드에서 읽기 전용 트랜잭션 (= 별도 커넥션) 으로 실행한다.
+     * 트랜잭션 timeout 이 statement timeout 으로 적용되고, 반환된 future 가 실행 결과가 아닌 이유로 끝나면
+     * (cancel, orTimeout 등) 대기 중인 작업을 빼고 실행 중인 JDBC statement 도 취소한다. 대기열이 차 있으면 RejectedExecutionException 을 던진다.
+     */
+    public <T> CompletableFuture<T> submitReadOnly(Supplier<T> query, Duration timeout) {
+        return submitReadOnly(executor, query, timeout);
+    }
+
+    /**
+     * searchPageParallel 용 전용 풀에서 실행한다. 풀과 대기열이 모두 차 있으면 RejectedExecutionException 을 던진다.
+     */
+    public <T> CompletableFuture<T> submitPageQuery(Supplier<T> query, Duration timeout) {
+        return submitReadOnly(pageExecutor, query, timeout);
+    }
+
+    private <T> CompletableFuture<T> submitReadOnly(ExecutorService executor, Supplier<T> query, Duration timeout) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.setTimeout((int) Math.max(1, (timeout.toMillis() + 999) / 1000));
+
+        Supplier<T> counted = sqlStatementCounter.propagate(query);
+        AtomicReference<Session> running = new AtomicReference<>();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> {
+            try {
+                result.complete(transactionTemplate.execute(status -> {
+                    running.set(em.unwrap(Session.class));
+                    try {
+                        return counted.get();
+                    } finally {
+                        running.set(null);
+                    }
+                }));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        result.whenComplete((value, e) -> {
+            //orTimeout 은 cancel 이 아니라 TimeoutException 으로 완료하므로 예외로 끝나면 모두 정리
+            //interrupt 만으로는 JDBC 호출이 멈추지 않으므로 실행 중인 statement 를 직접 취소
+            if (e != null && !task.isDone()) {
+                task.cancel(true);
+                cancelQuery(running.get());
+            }
+        });
+        return result;
+    }
+
+    private static void cancelQuery(Session session) {
+        if (session == null) {
+            return;
+        }
+        try {
+            session.cancelQuery();
+        } catch (RuntimeException e) {
+            //이미 끝났거나 닫힌 세션이면 취소할 statement 가 없음
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        pageExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,14 @@
+package study.querydsl.repository;
+
+public enum CountStrategy {
+    //매번 count 쿼리 실행 (첫/마지막 페이지는 생략)
+    EXACT,
+    //조건별 count 결과를 TTL 동안 재사용
+    CACHED,
+    //캐시된 값 또는 추정치를 즉시 반환, count는 백그라운드에서 갱신
+    ESTIMATED,
+    //content 쿼리와 count 쿼리를 별도 스레드에서 동시에 실행
+    ASYNC,
+    //searchPageParallel 로 실행. 트랜잭션 안에서 호출되므로 content 는 호출자 커넥션, count 는 전용 풀의 별도 커넥션에서 동시에 실행
+    PARALLEL
+}
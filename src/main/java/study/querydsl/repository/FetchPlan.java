@@ -0,0 +1,10 @@
+package study.querydsl.repository;
+
+public enum FetchPlan {
+    //fetch join으로 한 번에 조회
+    FETCH_JOIN,
+    //지연 로딩을 유지하고 접근 시 default_batch_fetch_size 만큼 IN 쿼리로 조회
+    BATCH,
+    //엔티티 그래프 (Member.team) 로 조회
+    ENTITY_GRAPH
+}
@@ -0,0 +1,334 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDTO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * member 의 검색 컬럼 (id, username, age, team) 만 primitive 배열로 들고 있는 인메모리 검색 엔진.
+ * member.search.in-memory=true 이면 기동 시 적재하고 {@link MemberRepositoryImpl#search} 가 DB 대신 사용한다.
+ * 변경은 {@link InMemoryMemberIndexListener} 가 커밋 이후에 반영한다. 적재 중에 커밋된 변경은 모아뒀다가 적재가 끝나면 다시 반영한다.
+ * username 은 정렬 배열 + 이진 탐색 대신 username -> 위치 해시 인덱스를 쓴다.
+ * 조건이 일치 (eq) 뿐이라 정렬 순서가 필요 없고, 쓰기마다 정렬 배열을 다시 만들지 않고 해당 항목만 고치면 된다.
+ */
+@Component
+public class InMemoryMemberIndex {
+
+    private final JPAQueryFactory queryFactory;
+    private final PlatformTransactionManager transactionManager;
+    private final boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    //reload 는 한 번에 하나만 실행. pending 은 실행 중인 reload 가 만들고 끝날 때 비운다
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private volatile Columns columns;
+    private volatile List<Consumer<Columns>> pending;
+
+    public InMemoryMemberIndex(JPAQueryFactory queryFactory,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${member.search.in-memory:false}") boolean enabled) {
+        this.queryFactory = queryFactory;
+        this.transactionManager = transactionManager;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            reload();
+        }
+    }
+
+    public boolean isReady() {
+        return columns != null;
+    }
+
+    public boolean isServing() {
+        return enabled && columns != null;
+    }
+
+    public void reload() {
+        reloadLock.lock();
+        try {
+            List<Consumer<Columns>> changes = new ArrayList<>();
+            lock.writeLock().lock();
+            try {
+                pending = changes;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            try {
+                Columns loaded = load();
+                //적재 중에 커밋된 변경을 다시 반영 (id 기준 upsert 이므로 중복 적용되어도 같은 결과)
+                lock.writeLock().lock();
+                try {
+                    changes.forEach(op -> op.accept(loaded));
+                    columns = loaded;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    pending = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    Columns load() {
+        Columns loaded = new Columns();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Tuple> teams = queryFactory.select(team.id, team.name).from(team).stream()) {
+                teams.forEach(t -> loaded.upsertTeam(t.get(team.id), t.get(team.name)));
+            }
+            try (Stream<Tuple> members = queryFactory
+                    .select(member.id, member.username, member.age, team.id)
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .stream()) {
+                members.forEach(t -> loaded.upsertMember(t.get(member.id), t.get(member.username), t.get(member.age), t.get(team.id), null));
+            }
+        });
+        return loaded;
+    }
+
+    public void reloadAfterCommit() {
+        if (!isReady()) {
+            return;
+        }
+        afterCommit(this::reload);
+    }
+
+    public void saveMember(long id, String username, int age, Long teamId, String teamName) {
+        apply(c -> c.upsertMember(id, username, age, teamId, teamName));
+    }
+
+    public void removeMember(long id) {
+        apply(c -> c.removeMember(id));
+    }
+
+    public void saveTeam(long id, String name) {
+        apply(c -> c.upsertTeam(id, name));
+    }
+
+    public List<MemberTeamDTO> search(MemberSearchCondition condition) {
+        lock.readLock().lock();
+        try {
+            return columns.search(condition);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    //커밋 이후에 호출되므로 둘 다 없으면 이후 시작할 reload 의 조회가 이 변경을 읽는다
+    private void apply(Consumer<Columns> op) {
+        if (columns == null && pending == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.add(op);
+            }
+            if (columns != null) {
+                op.accept(columns);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static final class Columns {
+
+        private static final int NO_TEAM = -1;
+        private static final int[] NO_POSITIONS = new int[0];
+
+        int size;
+        long[] ids = new long[1024];
+        int[] ages = new int[1024];
+        int[] teamCodes = new int[1024];
+        String[] usernames = new String[1024];
+        final BitSet removed = new BitSet();
+        final Map<Long, Integer> positions = new HashMap<>();
+
+        //team 은 dictionary encoding (teamCodes[i] -> teamIds/teamNames)
+        int teamCount;
+        long[] teamIds = new long[16];
+        String[] teamNames = new String[16];
+        final Map<Long, Integer> teamCodeById = new HashMap<>();
+
+        //username -> 위치 목록. 쓰기마다 해당 username 항목만 고친다 (대부분 1건이므로 배열 복사)
+        final Map<String, int[]> positionsByUsername = new HashMap<>();
+
+        void upsertMember(long id, String username, int age, Long teamId, String teamName) {
+            int teamCode = (teamId != null) ? upsertTeam(teamId, teamName) : NO_TEAM;
+
+            Integer position = positions.get(id);
+            if (position == null) {
+                if (size == ids.length) {
+                    int capacity = size * 2;
+                    ids = Arrays.copyOf(ids, capacity);
+                    ages = Arrays.copyOf(ages, capacity);
+                    teamCodes = Arrays.copyOf(teamCodes, capacity);
+                    usernames = Arrays.copyOf(usernames, capacity);
+                }
+                position = size++;
+                positions.put(id, position);
+                ids[position] = id;
+            } else {
+                unindexUsername(usernames[position], position);
+            }
+
+            usernames[position] = username;
+            ages[position] = age;
+            teamCodes[position] = teamCode;
+            indexUsername(username, position);
+        }
+
+        void removeMember(long id) {
+            Integer position = positions.remove(id);
+            if (position != null) {
+                removed.set(position);
+                unindexUsername(usernames[position], position);
+            }
+        }
+
+        private void indexUsername(String username, int position) {
+            if (username == null) {
+                return;
+            }
+            int[] current = positionsByUsername.get(username);
+            if (current == null) {
+                positionsByUsername.put(username, new int[]{position});
+            } else {
+                int[] added = Arrays.copyOf(current, current.length + 1);
+                added[current.length] = position;
+                positionsByUsername.put(username, added);
+            }
+        }
+
+        private void unindexUsername(String username, int position) {
+            if (username == null) {
+                return;
+            }
+            int[] current = positionsByUsername.get(username);
+            if (current == null) {
+                return;
+            }
+            int[] remaining = Arrays.stream(current).filter(p -> p != position).toArray();
+            if (remaining.length == 0) {
+                positionsByUsername.remove(username);
+            } else {
+                positionsByUsername.put(username, remaining);
+            }
+        }
+
+        int upsertTeam(long teamId, String name) {
+            Integer code = teamCodeById.get(teamId);
+            if (code == null) {
+                if (teamCount == teamIds.length) {
+                    teamIds = Arrays.copyOf(teamIds, teamCount * 2);
+                    teamNames = Arrays.copyOf(teamNames, teamCount * 2);
+                }
+                code = teamCount++;
+                teamCodeById.put(teamId, code);
+                teamIds[code] = teamId;
+            }
+            if (name != null) {
+                teamNames[code] = name;
+            }
+            return code;
+        }
+
+        List<MemberTeamDTO> search(MemberSearchCondition condition) {
+            int ageGoe = (condition.getAgeGoe() != null) ? condition.getAgeGoe() : Integer.MIN_VALUE;
+            int ageLoe = (condition.getAgeLoe() != null) ? condition.getAgeLoe() : Integer.MAX_VALUE;
+
+            //teamName 조건은 team dictionary 에서 먼저 code 집합으로 바꿔 두고 정수 비교로 평가
+            boolean[] teamMatches = null;
+            if (hasText(condition.getTeamName())) {
+                teamMatches = new boolean[teamCount];
+                for (int code = 0; code < teamCount; code++) {
+                    teamMatches[code] = condition.getTeamName().equals(teamNames[code]);
+                }
+            }
+
+            List<MemberTeamDTO> result = new ArrayList<>();
+            if (hasText(condition.getUsername())) {
+                for (int p : positionsByUsername.getOrDefault(condition.getUsername(), NO_POSITIONS)) {
+                    if (matches(p, ageGoe, ageLoe, teamMatches)) {
+                        result.add(toDto(p));
+                    }
+                }
+                return result;
+            }
+
+            for (int p = 0; p < size; p++) {
+                if (matches(p, ageGoe, ageLoe, teamMatches)) {
+                    result.add(toDto(p));
+                }
+            }
+            return result;
+        }
+
+        private boolean matches(int p, int ageGoe, int ageLoe, boolean[] teamMatches) {
+            return !removed.get(p) && ages[p] >= ageGoe && ages[p] <= ageLoe && teamMatches(teamMatches, teamCodes[p]);
+        }
+
+        private static boolean teamMatches(boolean[] teamMatches, int teamCode) {
+            return teamMatches == null || (teamCode != NO_TEAM && teamMatches[teamCode]);
+        }
+
+        private MemberTeamDTO toDto(int p) {
+            int teamCode = teamCodes[p];
+            return (teamCode != NO_TEAM)
+                    ? new MemberTeamDTO(ids[p], usernames[p], ages[p], teamIds[teamCode], teamNames[teamCode])
+                    : new MemberTeamDTO(ids[p], usernames[p], ages[p], null, null);
+        }
+    }
+}
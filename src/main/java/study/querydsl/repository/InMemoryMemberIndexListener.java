@@ -0,0 +1,58 @@
+package study.querydsl.repository;
+
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Member/Team 변경을 커밋 이후에 {@link InMemoryMemberIndex} 에 반영한다.
+ * 첫 적재 중에 커밋된 변경도 놓치지 않도록 적재 여부는 커밋 이후 index 쪽에서 판단한다.
+ * Hibernate 가 Spring bean container 로 생성하므로 필드 주입을 받는다.
+ */
+public class InMemoryMemberIndexListener {
+
+    @Autowired
+    private ObjectProvider<InMemoryMemberIndex> memberIndexProvider;
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Object entity) {
+        InMemoryMemberIndex memberIndex = memberIndex();
+        if (memberIndex == null) {
+            return;
+        }
+
+        if (entity instanceof Member member) {
+            long id = member.getId();
+            String username = member.getUsername();
+            int age = member.getAge();
+            Team team = member.getTeam();
+            Long teamId = (team != null) ? team.getId() : null;
+            String teamName = (team != null && Hibernate.isInitialized(team)) ? team.getName() : null;
+            InMemoryMemberIndex.afterCommit(() -> memberIndex.saveMember(id, username, age, teamId, teamName));
+        } else if (entity instanceof Team team) {
+            long id = team.getId();
+            String name = team.getName();
+            InMemoryMemberIndex.afterCommit(() -> memberIndex.saveTeam(id, name));
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        InMemoryMemberIndex memberIndex = memberIndex();
+        if (memberIndex != null && entity instanceof Member member) {
+            long id = member.getId();
+            InMemoryMemberIndex.afterCommit(() -> memberIndex.removeMember(id));
+        }
+    }
+
+    private InMemoryMemberIndex memberIndex() {
+        return (memberIndexProvider != null) ? memberIndexProvider.getIfAvailable() : null;
+    }
+}
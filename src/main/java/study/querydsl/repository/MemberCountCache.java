@@ -0,0 +1,95 @@
+package study.querydsl.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+@Component
+public class MemberCountCache {
+
+    //가득 차면 전체를 비우지 않고 덜 쓰인 조건부터 밀어냄. TTL 은 getStale 에서 만료된 값도 써야 하므로 직접 관리
+    private final Cache<MemberSearchCondition, CachedCount> cache;
+    private final Set<MemberSearchCondition> refreshing = ConcurrentHashMap.newKeySet();
+    private final AsyncQueryExecutor asyncQueryExecutor;
+    private final long ttlMillis;
+    private final Duration refreshTimeout;
+
+    public MemberCountCache(AsyncQueryExecutor asyncQueryExecutor,
+                            @Value("${member.count.cache-ttl:30s}") Duration ttl,
+                            @Value("${member.count.cache-max-size:10000}") int maxSize,
+                            @Value("${member.query.page-timeout:5s}") Duration refreshTimeout) {
+        this.asyncQueryExecutor = asyncQueryExecutor;
+        this.ttlMillis = ttl.toMillis();
+        this.refreshTimeout = refreshTimeout;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * TTL 내의 값이 있으면 반환하고, 없으면 count 쿼리를 실행해서 캐시한다.
+     */
+    public long get(MemberSearchCondition condition, Supplier<Long> countQuery) {
+        CachedCount cached = cache.getIfPresent(condition);
+        if (cached != null && !cached.isExpired()) {
+            return cached.count();
+        }
+
+        long count = countQuery.get();
+        put(condition, count);
+        return count;
+    }
+
+    /**
+     * 만료 여부와 상관없이 마지막으로 계산된 값을 반환하고, 만료됐거나 없으면 백그라운드에서 갱신한다.
+     * countQuery 는 별도 스레드의 읽기 전용 트랜잭션에서 실행되므로 호출한 스레드의 쿼리 객체를 캡처하지 말고 안에서 만들어야 한다.
+     */
+    public Long getStale(MemberSearchCondition condition, Supplier<Long> countQuery) {
+        CachedCount cached = cache.getIfPresent(condition);
+        if (cached == null || cached.isExpired()) {
+            refreshAsync(condition, countQuery);
+        }
+        return (cached != null) ? cached.count() : null;
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    private void refreshAsync(MemberSearchCondition condition, Supplier<Long> countQuery) {
+        if (!refreshing.add(condition)) {
+            return;
+        }
+
+        //대기열이 차 있으면 이번 갱신은 건너뛰고 다음 조회에서 다시 시도
+        try {
+            asyncQueryExecutor.submitReadOnly(countQuery, refreshTimeout)
+                    .whenComplete((count, e) -> {
+                        refreshing.remove(condition);
+                        if (count != null) {
+                            put(condition, count);
+                        }
+                    });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(condition);
+        }
+    }
+
+    private void put(MemberSearchCondition condition, long count) {
+        cache.put(condition, new CachedCount(count, System.currentTimeMillis() + ttlMillis));
+    }
+
+    private record CachedCount(long count, long expiresAt) {
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+}
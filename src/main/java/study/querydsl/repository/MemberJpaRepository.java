@@ -4,7 +4,9 @@ import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDTO;
 import study.querydsl.dto.QMemberTeamDTO;
@@ -24,32 +26,39 @@ public class MemberJpaRepository {
 
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final MemberSearchTemplates memberSearchTemplates;
 
     public void save(Member member) {
         em.persist(member);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Member> findById(Long id) {
         return Optional.ofNullable(em.find(Member.class, id));
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findAll() {
         return em.createQuery("select m from Member m", Member.class)
                 .getResultList();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findAll_QueryDSL() {
         return queryFactory
                 .selectFrom(member)
                 .fetch();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findByUsername(String username) {
         return em.createQuery("select m from Member m where m.username = :username", Member.class)
                 .setParameter("username", username)
+                .setHint(QueryHints.HINT_CACHEABLE, true)
                 .getResultList();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findByUsername_QueryDSL(String username) {
         return queryFactory
                 .selectFrom(member)
@@ -57,6 +66,7 @@ public class MemberJpaRepository {
                 .fetch();
     }
 
+    @Transactional(readOnly = true)
     public List<MemberTeamDTO> searchByBuilder(MemberSearchCondition memberSearchCondition) {
 
         BooleanBuilder booleanBuilder = new BooleanBuilder();
@@ -83,17 +93,9 @@ public class MemberJpaRepository {
                 .fetch();
     }
 
+    @Transactional(readOnly = true)
     public List<MemberTeamDTO> searchByWhere(MemberSearchCondition memberSearchCondition) {
-        return queryFactory
-                .select(new QMemberTeamDTO(member.id, member.username, member.age, team.id, team.name))
-                .from(member, team)
-                .where(
-                        usernameEq(memberSearchCondition.getUsername()),
-                        teamNameEq(memberSearchCondition.getTeamName()),
-                        ageGoe(memberSearchCondition.getAgeGoe()),
-                        ageLoe(memberSearchCondition.getAgeLoe())
-                )
-                .fetch();
+        return memberSearchTemplates.search(memberSearchCondition).getResultList();
     }
 
     private BooleanExpression allEq(String username, String teamName, Integer ageGoe, Integer ageLoe) {
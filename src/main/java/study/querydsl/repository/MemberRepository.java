@@ -1,11 +1,16 @@
 package study.querydsl.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.entity.Member;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 
 public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom {
 
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     List<Member> findByUsername(String username);
 }
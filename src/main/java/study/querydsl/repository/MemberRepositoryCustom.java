@@ -2,13 +2,25 @@ package study.querydsl.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.BulkMutationResultDTO;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDTO;
+import study.querydsl.dto.MemberTeamSliceDTO;
+import study.querydsl.entity.Member;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface MemberRepositoryCustom {
     List<MemberTeamDTO> search(MemberSearchCondition condition);
     Page<MemberTeamDTO> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDTO> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+    Page<MemberTeamDTO> searchPageTwoPhase(MemberSearchCondition condition, Pageable pageable);
+    Page<MemberTeamDTO> searchPageParallel(MemberSearchCondition condition, Pageable pageable);
+    Page<MemberTeamDTO> searchPage(MemberSearchCondition condition, Pageable pageable, CountStrategy countStrategy);
+    MemberTeamSliceDTO searchSlice(MemberSearchCondition condition, String cursor, int size);
+    List<Member> findAll(MemberSearchCondition condition, FetchPlan fetchPlan);
+    void searchStream(MemberSearchCondition condition, Consumer<MemberTeamDTO> consumer);
+    BulkMutationResultDTO bulkAddAge(MemberSearchCondition condition, int delta);
+    BulkMutationResultDTO bulkDelete(MemberSearchCondition condition);
 }
@@ -1,19 +1,57 @@
 package study.querydsl.repository;
 
+import com.querydsl.core.Tuple;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.cache.DataVersion;
+import study.querydsl.dto.BulkMutationResultDTO;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDTO;
+import study.querydsl.dto.MemberTeamSliceDTO;
 import study.querydsl.dto.QMemberTeamDTO;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
 
+import javax.persistence.EntityManager;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.entity.QMember.member;
@@ -23,81 +61,448 @@ import static study.querydsl.entity.QTeam.team;
 @RequiredArgsConstructor
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
+    private static final int MAX_SLICE_SIZE = 1000;
+
+    private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final AsyncQueryExecutor asyncQueryExecutor;
+    private final MemberCountCache memberCountCache;
+    private final MemberSearchTemplates memberSearchTemplates;
+    private final InMemoryMemberIndex inMemoryMemberIndex;
+    private final TeamStatisticsRepository teamStatisticsRepository;
+    private final DataVersion dataVersion;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${member.query.stream-fetch-size:500}")
+    private int streamFetchSize;
+
+    @Value("${member.query.page-timeout:5s}")
+    private Duration pageTimeout;
+
+    @Value("${member.bulk.chunk-size:1000}")
+    private int bulkChunkSize;
 
+    //인메모리 경로는 커넥션/트랜잭션 없이 처리하고, DB 경로만 readOnly 트랜잭션 (라우팅 시 replica) 으로 조회
     @Override
     public List<MemberTeamDTO> search(MemberSearchCondition condition) {
-        return queryFactory
-                .select(new QMemberTeamDTO(member.id, member.username, member.age, team.id, team.name))
-                .from(member)
-                .leftJoin(team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .fetch();
+        if (inMemoryMemberIndex.isServing()) {
+            return inMemoryMemberIndex.search(condition);
+        }
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> memberSearchTemplates.search(condition).getResultList());
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<MemberTeamDTO> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDTO> result = queryFactory
-                .select(new QMemberTeamDTO(member.id, member.username, member.age, team.id, team.name))
-                .from(member)
-                .leftJoin(member.team, team)
+        List<MemberTeamDTO> result = memberSearchTemplates.page(condition, pageable).getResultList();
+
+        //Count 자체에 페이징을 할 수 없음
+        Long count = memberSearchTemplates.count(condition).getSingleResult();
+
+        return new PageImpl<>(result, pageable, (count + pageable.getPageSize() - 1) / pageable.getPageSize());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<MemberTeamDTO> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDTO> result = memberSearchTemplates.page(condition, pageable).getResultList();
+
+        return PageableExecutionUtils.getPage(result, pageable, () -> memberSearchTemplates.count(condition).getSingleResult());
+    }
+
+    /**
+     * offset 은 id 만 읽는 좁은 쿼리로 건너뛰고, 해당 페이지 id 에 대해서만 team join + projection 을 조회한다.
+     * 페이지가 안정적이도록 member.id 순으로 정렬한다.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Page<MemberTeamDTO> searchPageTwoPhase(MemberSearchCondition condition, Pageable pageable) {
+        JPAQuery<Long> idQuery = queryFactory
+                .select(member.id)
+                .from(member);
+        //team 조건이 없으면 1단계에서는 join 하지 않음
+        if (hasText(condition.getTeamName())) {
+            idQuery.join(member.team, team);
+        }
+
+        List<Long> ids = idQuery
                 .where(
                         usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
                 )
+                .orderBy(member.id.asc())
                 .offset(pageable.getOffset())
                 .limit(pageable.getPageSize())
                 .fetch();
 
-        //Count 자체에 페이징을 할 수 없음
-        Long count = queryFactory
-                .select(member.count())
+        List<MemberTeamDTO> result = ids.isEmpty() ? List.of() : queryFactory
+                .select(new QMemberTeamDTO(member.id, member.username, member.age, team.id, team.name))
                 .from(member)
+                .leftJoin(member.team, team)
+                .where(member.id.in(ids))
+                .orderBy(member.id.asc())
+                .fetch();
+
+        return PageableExecutionUtils.getPage(result, pageable, () -> memberSearchTemplates.count(condition).getSingleResult());
+    }
+
+    /**
+     * content 와 count 를 전용 풀의 읽기 전용 트랜잭션에서 동시에 실행한다.
+     * 호출자 트랜잭션이 이미 커넥션을 잡고 있으면 content 는 그 커넥션에서 읽어서 요청당 커넥션을 2개로 제한하고,
+     * 전용 풀의 대기열까지 차 있으면 호출 스레드에서 순차 실행한다.
+     */
+    @Override
+    public Page<MemberTeamDTO> searchPageParallel(MemberSearchCondition condition, Pageable pageable) {
+        MemberSearchCondition key = condition.normalized();
+
+        CompletableFuture<Long> count;
+        try {
+            count = asyncQueryExecutor.submitPageQuery(() -> memberSearchTemplates.count(key).getSingleResult(), pageTimeout);
+        } catch (RejectedExecutionException e) {
+            return searchPageSequential(key, pageable);
+        }
+
+        CompletableFuture<List<MemberTeamDTO>> content;
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            try {
+                content = CompletableFuture.completedFuture(memberSearchTemplates.page(key, pageable)
+                        .setHint(QueryHints.SPEC_HINT_TIMEOUT, (int) pageTimeout.toMillis())
+                        .getResultList());
+            } catch (RuntimeException e) {
+                count.cancel(true);
+                throw e;
+            }
+        } else {
+            try {
+                content = asyncQueryExecutor.submitPageQuery(() -> memberSearchTemplates.page(key, pageable).getResultList(), pageTimeout);
+            } catch (RejectedExecutionException e) {
+                count.cancel(true);
+                return searchPageSequential(key, pageable);
+            }
+        }
+
+        //한쪽이 실패하면 다른 쪽 쿼리도 취소. 취소된 쪽의 CancellationException 대신 처음 실패한 원인을 던지기 위해 기록
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        content.whenComplete((result, e) -> {
+            if (e != null && !(e instanceof CancellationException)) {
+                failure.compareAndSet(null, e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                count.cancel(true);
+            }
+        });
+        count.whenComplete((result, e) -> {
+            if (e != null && !(e instanceof CancellationException)) {
+                failure.compareAndSet(null, e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                content.cancel(true);
+            }
+        });
+
+        try {
+            return content
+                    .thenCombine(count, (result, total) -> (Page<MemberTeamDTO>) new PageImpl<>(result, pageable, total))
+                    .get(pageTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            content.cancel(true);
+            count.cancel(true);
+            throw new QueryTimeoutException("Member page query timed out after " + pageTimeout.toMillis() + "ms", e);
+        } catch (ExecutionException e) {
+            //thenCombine 은 content 쪽 예외를 먼저 돌려주므로 count 가 먼저 실패했으면 content 의 CancellationException 이 옴
+            Throwable cause = failure.get() != null ? failure.get() : e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            content.cancel(true);
+            count.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for member page query", e);
+        }
+    }
+
+    private Page<MemberTeamDTO> searchPageSequential(MemberSearchCondition condition, Pageable pageable) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> searchPageComplex(condition, pageable));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<MemberTeamDTO> searchPage(MemberSearchCondition condition, Pageable pageable, CountStrategy countStrategy) {
+        MemberSearchCondition key = condition.normalized();
+
+        switch (countStrategy) {
+            case PARALLEL:
+                return searchPageParallel(key, pageable);
+            case ASYNC: {
+                //count 쿼리는 작업 스레드 안에서 만들어서 그 스레드의 읽기 전용 트랜잭션으로 실행. 대기열이 차 있으면 순차 실행
+                CompletableFuture<Long> count;
+                try {
+                    count = asyncQueryExecutor.submitReadOnly(() -> memberSearchTemplates.count(key).getSingleResult(), pageTimeout)
+                            .orTimeout(pageTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    List<MemberTeamDTO> content = memberSearchTemplates.page(key, pageable).getResultList();
+                    return PageableExecutionUtils.getPage(content, pageable, () -> memberSearchTemplates.count(key).getSingleResult());
+                }
+                List<MemberTeamDTO> content;
+                try {
+                    content = memberSearchTemplates.page(key, pageable).getResultList();
+                } catch (RuntimeException e) {
+                    count.cancel(true);
+                    throw e;
+                }
+                return new PageImpl<>(content, pageable, awaitCount(count));
+            }
+            case CACHED: {
+                List<MemberTeamDTO> content = memberSearchTemplates.page(key, pageable).getResultList();
+                return PageableExecutionUtils.getPage(content, pageable, () -> memberCountCache.get(key, () -> memberSearchTemplates.count(key).getSingleResult()));
+            }
+            case ESTIMATED: {
+                List<MemberTeamDTO> content = memberSearchTemplates.page(key, pageable).getResultList();
+                return PageableExecutionUtils.getPage(content, pageable, () -> estimateCount(key, pageable, content));
+            }
+            default: {
+                List<MemberTeamDTO> content = memberSearchTemplates.page(key, pageable).getResultList();
+                return PageableExecutionUtils.getPage(content, pageable, () -> memberSearchTemplates.count(key).getSingleResult());
+            }
+        }
+    }
+
+    private long awaitCount(CompletableFuture<Long> count) {
+        try {
+            return count.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new QueryTimeoutException("Member count query timed out after " + pageTimeout.toMillis() + "ms", e.getCause());
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    //캐시가 비어 있으면 현재 페이지로 알 수 있는 최소값을 반환 (페이지가 꽉 찼으면 다음 페이지가 있다고 표시)
+    private long estimateCount(MemberSearchCondition condition, Pageable pageable, List<MemberTeamDTO> content) {
+        long lowerBound = pageable.getOffset() + content.size() + (content.size() == pageable.getPageSize() ? 1 : 0);
+        Long cached = memberCountCache.getStale(condition, () -> memberSearchTemplates.count(condition).getSingleResult());
+        return (cached != null) ? Math.max(cached, lowerBound) : lowerBound;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public MemberTeamSliceDTO searchSlice(MemberSearchCondition condition, String cursor, int size) {
+        //limit(size + 1) 이 넘치거나 테이블 전체를 읽지 않도록 상한을 둠
+        if (size < 1 || size > MAX_SLICE_SIZE) {
+            throw new IllegalArgumentException("Slice size must be between 1 and " + MAX_SLICE_SIZE + ": " + size);
+        }
+
+        //offset 대신 마지막으로 읽은 member.id 이후부터 조회 (seek)
+        List<MemberTeamDTO> result = joinTeam(queryFactory
+                .select(new QMemberTeamDTO(member.id, member.username, member.age, team.id, team.name))
+                .from(member), condition)
                 .where(
+                        memberIdGt(decodeCursor(cursor)),
                         usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
                 )
-                .fetchOne();
+                .orderBy(member.id.asc())
+                .limit(size + 1)
+                .fetch();
 
-        return new PageImpl<>(result, pageable, (count + pageable.getPageSize() - 1) / pageable.getPageSize());
+        boolean hasNext = result.size() > size;
+        if (hasNext) {
+            result = result.subList(0, size);
+        }
+
+        String nextCursor = hasNext ? encodeCursor(result.get(result.size() - 1).getMemberId()) : null;
+        return new MemberTeamSliceDTO(result, nextCursor, hasNext);
     }
 
     @Override
-    public Page<MemberTeamDTO> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDTO> result = queryFactory
-                .select(new QMemberTeamDTO(member.id, member.username, member.age, team.id, team.name))
-                .from(member)
-                .leftJoin(member.team, team)
+    @Transactional(readOnly = true)
+    public List<Member> findAll(MemberSearchCondition condition, FetchPlan fetchPlan) {
+        JPAQuery<Member> query = joinTeam(queryFactory
+                .selectFrom(member), condition);
+
+        if (fetchPlan == FetchPlan.FETCH_JOIN) {
+            query.fetchJoin();
+        }
+        if (fetchPlan == FetchPlan.ENTITY_GRAPH) {
+            query.setHint("javax.persistence.fetchgraph", em.getEntityGraph("Member.team"));
+        }
+
+        return query
                 .where(
                         usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
                 )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
                 .fetch();
+    }
 
-        JPAQuery<Long> countQuery = queryFactory
-                .select(member.count())
-                .from(member)
+    @Override
+    @Transactional(readOnly = true)
+    public void searchStream(MemberSearchCondition condition, Consumer<MemberTeamDTO> consumer) {
+        //전체 결과를 List로 올리지 않고 forward-only 커서로 한 건씩 전달
+        try (Stream<MemberTeamDTO> stream = joinTeam(queryFactory
+                .select(new QMemberTeamDTO(member.id, member.username, member.age, team.id, team.name))
+                .from(member), condition)
                 .where(
                         usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
-                );
+                )
+                .orderBy(member.id.asc())
+                .setHint(QueryHints.HINT_FETCH_SIZE, streamFetchSize)
+                .stream()) {
+            //DTO projection 은 영속성 컨텍스트에 쌓이지 않으므로 중간에 clear 할 필요 없음
+            stream.forEach(consumer);
+        }
+    }
+
+    @Override
+    public BulkMutationResultDTO bulkAddAge(MemberSearchCondition condition, int delta) {
+        return bulkMutate(condition, false, ids -> queryFactory
+                .update(member)
+                .set(member.age, member.age.add(delta))
+                .where(member.id.in(ids))
+                .execute());
+    }
+
+    @Override
+    public BulkMutationResultDTO bulkDelete(MemberSearchCondition condition) {
+        return bulkMutate(condition, true, ids -> queryFactory
+                .delete(member)
+                .where(member.id.in(ids))
+                .execute());
+    }
+
+    /**
+     * 조건에 맞는 id 를 chunk 단위로 seek 하면서 변경한다.
+     * 호출자에게 트랜잭션이 없으면 chunk 마다 별도 트랜잭션으로 커밋해서 락을 오래 잡지 않는다.
+     * em.clear() 대신 영향 받은 엔티티만 영속성 컨텍스트/2차 캐시에서 제거한다.
+     */
+    private BulkMutationResultDTO bulkMutate(MemberSearchCondition condition, boolean delete, ToLongFunction<List<Long>> mutation) {
+        long start = System.nanoTime();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        long affectedRows = 0;
+        int chunks = 0;
+        Long lastId = null;
+        while (true) {
+            Long afterId = lastId;
+            BulkChunk chunk = transactionTemplate.execute(status -> {
+                List<Tuple> targets = joinTeam(queryFactory
+                        .select(member.id, team.id)
+                        .from(member), condition)
+                        .where(
+                                memberIdGt(afterId),
+                                usernameEq(condition.getUsername()),
+                                teamNameEq(condition.getTeamName()),
+                                ageGoe(condition.getAgeGoe()),
+                                ageLoe(condition.getAgeLoe())
+                        )
+                        .orderBy(member.id.asc())
+                        .limit(bulkChunkSize)
+                        .fetch();
+                if (targets.isEmpty()) {
+                    return null;
+                }
+
+                List<Long> ids = targets.stream().map(t -> t.get(member.id)).collect(Collectors.toList());
+                long rows = mutation.applyAsLong(ids);
+                evict(targets, delete);
+                //bulk 쿼리는 엔티티 이벤트가 없으므로 영향 받은 team 의 집계를 같은 트랜잭션에서 다시 계산
+                teamStatisticsRepository.recompute(targets.stream()
+                        .map(t -> t.get(team.id))
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet()));
+                return new BulkChunk(rows, ids.get(ids.size() - 1));
+            });
+
+            if (chunk == null) {
+                break;
+            }
+            affectedRows += chunk.affectedRows();
+            chunks++;
+            lastId = chunk.lastId();
+        }
+
+        //bulk 쿼리는 엔티티 리스너를 거치지 않으므로 인메모리 인덱스는 다시 적재하고 응답 캐시 버전을 올림
+        if (affectedRows > 0) {
+            inMemoryMemberIndex.reloadAfterCommit();
+            dataVersion.bumpAfterCommit();
+        }
+
+        return new BulkMutationResultDTO(affectedRows, chunks, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private record BulkChunk(long affectedRows, Long lastId) {
+    }
+
+    private void evict(List<Tuple> targets, boolean delete) {
+        Map<Long, Long> teamIdByMemberId = new HashMap<>();
+        for (Tuple target : targets) {
+            teamIdByMemberId.put(target.get(member.id), target.get(team.id));
+        }
+
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        for (Map.Entry<Object, EntityEntry> entry : session.getPersistenceContextInternal().reentrantSafeEntityEntries()) {
+            if (entry.getKey() instanceof Member managed && teamIdByMemberId.containsKey(managed.getId())) {
+                if (delete && managed.getTeam() != null && em.getEntityManagerFactory().getPersistenceUnitUtil().isLoaded(managed.getTeam(), "members")) {
+                    managed.getTeam().getMembers().remove(managed);
+                }
+                em.detach(managed);
+            }
+        }
+
+        Cache cache = em.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+        Set<Long> teamIds = new HashSet<>();
+        for (Map.Entry<Long, Long> target : teamIdByMemberId.entrySet()) {
+            cache.evictEntityData(Member.class, target.getKey());
+            if (delete && target.getValue() != null) {
+                teamIds.add(target.getValue());
+            }
+        }
+        for (Long teamId : teamIds) {
+            cache.evictCollectionData(Team.class.getName() + ".members", teamId);
+        }
+    }
+
+    private String encodeCursor(Long memberId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(memberId.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Long decodeCursor(String cursor) {
+        if (!hasText(cursor)) {
+            return null;
+        }
+
+        try {
+            return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    //teamName 조건이 있으면 left join 과 결과가 같으므로 inner join 으로 바꿔서 DB가 team 인덱스부터 탐색할 수 있게 한다
+    private <T> JPAQuery<T> joinTeam(JPAQuery<T> query, MemberSearchCondition condition) {
+        return hasText(condition.getTeamName())
+                ? query.join(member.team, team)
+                : query.leftJoin(member.team, team);
+    }
 
-        return PageableExecutionUtils.getPage(result, pageable, countQuery::fetchOne);
+    private BooleanExpression memberIdGt(Long memberId) {
+        return (memberId != null) ? member.id.gt(memberId) : null;
     }
 
     private BooleanExpression usernameEq(String username) {
@@ -113,6 +518,6 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
     }
 
     private BooleanExpression ageLoe(Integer ageLoe) {
-        return (ageLoe != null) ? member.age.goe(ageLoe) : null;
+        return (ageLoe != null) ? member.age.loe(ageLoe) : null;
     }
 }
@@ -0,0 +1,87 @@
+package study.querydsl.repository;
+
+import study.querydsl.dto.MemberTeamDTO;
+
+import java.util.Arrays;
+
+/**
+ * member + team 한 묶음의 행을 컬럼별 primitive 배열로 담는 재사용 버퍼.
+ * {@link MemberRowReader} 가 가득 찰 때마다 넘겨주고 다시 채우므로, 넘겨받은 쪽은 버퍼를 보관하면 안 된다.
+ */
+public class MemberRowBuffer {
+
+    private final long[] memberIds;
+    private final String[] usernames;
+    private final int[] ages;
+    private final long[] teamIds;
+    private final boolean[] hasTeam;
+    private final String[] teamNames;
+    private int size;
+
+    public MemberRowBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Buffer capacity must be positive: " + capacity);
+        }
+        this.memberIds = new long[capacity];
+        this.usernames = new String[capacity];
+        this.ages = new int[capacity];
+        this.teamIds = new long[capacity];
+        this.hasTeam = new boolean[capacity];
+        this.teamNames = new String[capacity];
+    }
+
+    void add(long memberId, String username, int age, boolean hasTeam, long teamId, String teamName) {
+        memberIds[size] = memberId;
+        usernames[size] = username;
+        ages[size] = age;
+        this.hasTeam[size] = hasTeam;
+        teamIds[size] = teamId;
+        teamNames[size] = teamName;
+        size++;
+    }
+
+    void clear() {
+        //문자열 참조만 끊어서 다음 묶음까지 붙잡고 있지 않도록
+        Arrays.fill(usernames, 0, size, null);
+        Arrays.fill(teamNames, 0, size, null);
+        size = 0;
+    }
+
+    boolean isFull() {
+        return size == memberIds.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long memberId(int row) {
+        return memberIds[row];
+    }
+
+    public String username(int row) {
+        return usernames[row];
+    }
+
+    public int age(int row) {
+        return ages[row];
+    }
+
+    public boolean hasTeam(int row) {
+        return hasTeam[row];
+    }
+
+    public long teamId(int row) {
+        return teamIds[row];
+    }
+
+    public String teamName(int row) {
+        return teamNames[row];
+    }
+
+    //DTO 가 필요할 때만 박싱
+    public MemberTeamDTO toDto(int row) {
+        return new MemberTeamDTO(memberIds[row], usernames[row], ages[row],
+                hasTeam[row] ? teamIds[row] : null, teamNames[row]);
+    }
+}
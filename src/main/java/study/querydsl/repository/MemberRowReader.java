@@ -0,0 +1,86 @@
+package study.querydsl.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 대량 export 용 조회. 엔티티/DTO/Object[] 를 거치지 않고 ResultSet 을 {@link MemberRowBuffer} 에 바로 채운다.
+ * 행마다 생기는 할당은 드라이버가 만드는 문자열 정도만 남는다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MemberRowReader {
+
+    private static final String SELECT = "select m.member_id, m.username, m.age, t.team_id, t.name from member m";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${member.query.stream-fetch-size:500}")
+    private int fetchSize;
+
+    @Transactional(readOnly = true)
+    public void scan(MemberSearchCondition condition, MemberRowBuffer buffer, Consumer<MemberRowBuffer> consumer) {
+        List<Object> params = new ArrayList<>();
+        String sql = buildSql(condition, params);
+
+        buffer.clear();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            return ps;
+        }, rs -> {
+            long teamId = rs.getLong(4);
+            boolean hasTeam = !rs.wasNull();
+            buffer.add(rs.getLong(1), rs.getString(2), rs.getInt(3), hasTeam, teamId, rs.getString(5));
+            if (buffer.isFull()) {
+                consumer.accept(buffer);
+                buffer.clear();
+            }
+        });
+
+        if (buffer.size() > 0) {
+            consumer.accept(buffer);
+            buffer.clear();
+        }
+    }
+
+    //MemberSearchTemplates 의 where 조건과 동일하게 구성 (teamName 이 있으면 inner join). 조건 16가지 조합 모두 MemberRepositoryTest 에서 search() 와 결과를 비교한다
+    private static String buildSql(MemberSearchCondition condition, List<Object> params) {
+        StringBuilder sql = new StringBuilder(SELECT)
+                .append(hasText(condition.getTeamName()) ? " join" : " left join")
+                .append(" team t on m.team_id = t.team_id where 1 = 1");
+
+        if (hasText(condition.getUsername())) {
+            sql.append(" and m.username = ?");
+            params.add(condition.getUsername());
+        }
+        if (hasText(condition.getTeamName())) {
+            sql.append(" and t.name = ?");
+            params.add(condition.getTeamName());
+        }
+        if (condition.getAgeGoe() != null) {
+            sql.append(" and m.age >= ?");
+            params.add(condition.getAgeGoe());
+        }
+        if (condition.getAgeLoe() != null) {
+            sql.append(" and m.age <= ?");
+            params.add(condition.getAgeLoe());
+        }
+        return sql.append(" order by m.member_id").toString();
+    }
+}
@@ -0,0 +1,129 @@
+package study.querydsl.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDTO;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * MemberSearchCondition 의 어떤 필드가 채워졌는지 (4bit) 에 따라 JPQL 을 한 번만 만들어 두고,
+ * 이후에는 파라미터 바인딩만 한다. 같은 문자열이므로 Hibernate 의 query plan cache 도 그대로 적중한다.
+ * 조건 4개만으로 모양이 정해지는 검색/페이지/count 가 사용하고, cursor 나 id 목록처럼 조건이 더 붙는 쿼리는 QueryDSL 로 만든다.
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberSearchTemplates {
+
+    private static final int USERNAME = 1;
+    private static final int TEAM_NAME = 1 << 1;
+    private static final int AGE_GOE = 1 << 2;
+    private static final int AGE_LOE = 1 << 3;
+
+    private enum Kind {SEARCH, PAGE, COUNT}
+
+    private final EntityManager em;
+    //(kind << 4 | shape) -> JPQL
+    private final AtomicReferenceArray<String> templates = new AtomicReferenceArray<>(Kind.values().length << 4);
+
+    public TypedQuery<MemberTeamDTO> search(MemberSearchCondition condition) {
+        int shape = shapeOf(condition);
+        return bind(em.createQuery(template(Kind.SEARCH, shape), MemberTeamDTO.class), condition, shape);
+    }
+
+    //offset 페이지가 요청마다 같은 순서가 되도록 member.id 로 정렬
+    public TypedQuery<MemberTeamDTO> page(MemberSearchCondition condition, Pageable pageable) {
+        int shape = shapeOf(condition);
+        return bind(em.createQuery(template(Kind.PAGE, shape), MemberTeamDTO.class), condition, shape)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize());
+    }
+
+    public TypedQuery<Long> count(MemberSearchCondition condition) {
+        int shape = shapeOf(condition);
+        return bind(em.createQuery(template(Kind.COUNT, shape), Long.class), condition, shape);
+    }
+
+    static int shapeOf(MemberSearchCondition condition) {
+        int shape = 0;
+        if (hasText(condition.getUsername())) {
+            shape |= USERNAME;
+        }
+        if (hasText(condition.getTeamName())) {
+            shape |= TEAM_NAME;
+        }
+        if (condition.getAgeGoe() != null) {
+            shape |= AGE_GOE;
+        }
+        if (condition.getAgeLoe() != null) {
+            shape |= AGE_LOE;
+        }
+        return shape;
+    }
+
+    private static <T> TypedQuery<T> bind(TypedQuery<T> query, MemberSearchCondition condition, int shape) {
+        if ((shape & USERNAME) != 0) {
+            query.setParameter("username", condition.getUsername());
+        }
+        if ((shape & TEAM_NAME) != 0) {
+            query.setParameter("teamName", condition.getTeamName());
+        }
+        if ((shape & AGE_GOE) != 0) {
+            query.setParameter("ageGoe", condition.getAgeGoe());
+        }
+        if ((shape & AGE_LOE) != 0) {
+            query.setParameter("ageLoe", condition.getAgeLoe());
+        }
+        return query;
+    }
+
+    private String template(Kind kind, int shape) {
+        int index = kind.ordinal() << 4 | shape;
+        String template = templates.get(index);
+        if (template == null) {
+            template = build(kind, shape);
+            templates.compareAndSet(index, null, template);
+        }
+        return template;
+    }
+
+    private static String build(Kind kind, int shape) {
+        boolean teamName = (shape & TEAM_NAME) != 0;
+        if (kind == Kind.COUNT) {
+            //many-to-one left join 은 건수를 바꾸지 않으므로 team 조건이 없으면 join 하지 않음
+            return "select count(m)" + (teamName ? " from Member m join m.team t" : " from Member m") + where(shape);
+        }
+
+        String jpql = "select new study.querydsl.dto.MemberTeamDTO(m.id, m.username, m.age, t.id, t.name)"
+                + (teamName ? " from Member m join m.team t" : " from Member m left join m.team t")
+                + where(shape);
+        return (kind == Kind.PAGE) ? jpql + " order by m.id" : jpql;
+    }
+
+    private static String where(int shape) {
+        StringBuilder where = new StringBuilder();
+        String prefix = " where ";
+        if ((shape & USERNAME) != 0) {
+            where.append(prefix).append("m.username = :username");
+            prefix = " and ";
+        }
+        if ((shape & TEAM_NAME) != 0) {
+            where.append(prefix).append("t.name = :teamName");
+            prefix = " and ";
+        }
+        if ((shape & AGE_GOE) != 0) {
+            where.append(prefix).append("m.age >= :ageGoe");
+            prefix = " and ";
+        }
+        if ((shape & AGE_LOE) != 0) {
+            where.append(prefix).append("m.age <= :ageLoe");
+        }
+        return where.toString();
+    }
+}
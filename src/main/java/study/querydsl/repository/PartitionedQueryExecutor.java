@@ -0,0 +1,283 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Session;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.AggregateDTO;
+import study.querydsl.metrics.SqlStatementCounter;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * member 전체를 읽는 집계 쿼리를 member.id 범위로 나눠서 병렬로 실행하고 결과를 합친다.
+ * 파티션마다 별도 스레드의 읽기 전용 트랜잭션 (= 별도 EntityManager, 커넥션) 에서 실행되므로
+ * 쿼리는 member 를 from 으로 사용해야 하고, 병렬도는 파티션이 실제로 쓰는 풀의 크기 (pool-size) 에서 pool-headroom 을 뺀 값으로 제한한다.
+ * 실패/timeout/인터럽트로 중단하면 아직 시작하지 않은 파티션은 건너뛰고 실행 중인 JDBC statement 는 취소한다.
+ * 파티션마다 트랜잭션이 다르므로 각 파티션은 서로 다른 시점의 스냅샷을 읽는다.
+ * 실행 중에 커밋된 변경은 일부 파티션에만 반영될 수 있으므로 결과는 한 시점의 정확한 값이 아니다.
+ * (통계/리포트 용도. 정확한 값이 필요하면 단일 쿼리를 사용)
+ */
+@Component
+public class PartitionedQueryExecutor implements DisposableBean {
+
+    private final JPAQueryFactory queryFactory;
+    private final EntityManager em;
+    private final TransactionTemplate readOnly;
+    private final SqlStatementCounter sqlStatementCounter;
+    private final ForkJoinPool pool;
+    private final int partitions;
+    private final long minPartitionSize;
+    private final Duration timeout;
+
+    public PartitionedQueryExecutor(JPAQueryFactory queryFactory,
+                                    EntityManager em,
+                                    PlatformTransactionManager transactionManager,
+                                    SqlStatementCounter sqlStatementCounter,
+                                    @Value("${member.query.partition.parallelism:0}") int parallelism,
+                                    @Value("${member.query.partition.pool-size:${spring.datasource.hikari.maximum-pool-size:10}}") int poolSize,
+                                    @Value("${member.query.partition.pool-headroom:2}") int poolHeadroom,
+                                    @Value("${member.query.partition.min-size:10000}") long minPartitionSize,
+                                    @Value("${member.query.partition.timeout:30s}") Duration timeout) {
+        this.queryFactory = queryFactory;
+        this.em = em;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.readOnly.setTimeout((int) Math.max(1, (timeout.toMillis() + 999) / 1000));
+        this.sqlStatementCounter = sqlStatementCounter;
+
+        //파티션이 풀을 다 잡으면 다른 요청이 connection-timeout 까지 대기하므로 headroom 만큼 남김
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        threads = Math.max(1, Math.min(threads, poolSize - poolHeadroom));
+        this.pool = new ForkJoinPool(threads, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("partition-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        //id 분포가 고르지 않아도 먼저 끝난 스레드가 남은 파티션을 가져가도록 스레드 수보다 잘게 나눔
+        this.partitions = threads * 2;
+        this.minPartitionSize = Math.max(1, minPartitionSize);
+        this.timeout = timeout;
+    }
+
+    /**
+     * 예) aggregate(member.age, query -> query.from(member))
+     */
+    public AggregateDTO aggregate(NumberExpression<?> value, Function<JPAQuery<Tuple>, JPAQuery<Tuple>> from) {
+        return forEachPartition(range -> toAggregate(from.apply(selectAggregate(null, value)).where(range.predicates()).fetchOne(), 0))
+                .stream()
+                .reduce(new AggregateDTO(0, 0, null, null), AggregateDTO::merge);
+    }
+
+    /**
+     * 예) aggregateBy(team.name, member.age, query -> query.from(member).join(member.team, team))
+     * 그룹 순서는 파티션에 처음 나타난 순서이므로 필요하면 호출한 쪽에서 정렬한다.
+     */
+    public <K> Map<K, AggregateDTO> aggregateBy(Expression<K> key, NumberExpression<?> value,
+                                                Function<JPAQuery<Tuple>, JPAQuery<Tuple>> from) {
+        List<List<Tuple>> partials = forEachPartition(range -> from.apply(selectAggregate(key, value))
+                .where(range.predicates())
+                .groupBy(key)
+                .fetch());
+
+        Map<K, AggregateDTO> result = new LinkedHashMap<>();
+        for (List<Tuple> partial : partials) {
+            for (Tuple tuple : partial) {
+                result.merge(tuple.get(key), toAggregate(tuple, 1), AggregateDTO::merge);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 각 파티션을 order 와 같은 순서로 정렬해서 가져온 뒤 k-way merge 한다. limit 이 0 이면 전체.
+     * 파티션의 EntityManager 는 트랜잭션이 끝나면 닫히므로 엔티티는 준영속 상태로 돌아간다.
+     * 그래서 DTO / Tuple 프로젝션만 허용하고 엔티티 조회 (selectFrom 등) 는 IllegalArgumentException 을 던진다.
+     */
+    public <T> List<T> fetchOrdered(Function<JPAQueryFactory, JPAQuery<T>> query, Comparator<? super T> order, long limit) {
+        Expression<?> projection = query.apply(queryFactory).getMetadata().getProjection();
+        if (projection == null || projection instanceof EntityPath) {
+            throw new IllegalArgumentException("fetchOrdered requires a DTO or Tuple projection: " + projection);
+        }
+
+        List<List<T>> partials = forEachPartition(range -> {
+            JPAQuery<T> partitionQuery = query.apply(queryFactory).where(range.predicates());
+            if (limit > 0) {
+                partitionQuery.limit(limit);
+            }
+            return partitionQuery.fetch();
+        });
+
+        PriorityQueue<Cursor<T>> heads = new PriorityQueue<>(Math.max(1, partials.size()), Comparator.comparing((Cursor<T> cursor) -> cursor.head(), order));
+        for (List<T> partial : partials) {
+            Iterator<T> rows = partial.iterator();
+            if (rows.hasNext()) {
+                heads.add(new Cursor<>(rows.next(), rows));
+            }
+        }
+
+        List<T> result = new ArrayList<>();
+        while (!heads.isEmpty() && (limit <= 0 || result.size() < limit)) {
+            Cursor<T> cursor = heads.poll();
+            result.add(cursor.head());
+            if (cursor.rows().hasNext()) {
+                heads.add(new Cursor<>(cursor.rows().next(), cursor.rows()));
+            }
+        }
+        return result;
+    }
+
+    private JPAQuery<Tuple> selectAggregate(Expression<?> key, NumberExpression<?> value) {
+        return key == null
+                ? queryFactory.select(value.count(), value.sum(), value.min(), value.max())
+                : queryFactory.select(key, value.count(), value.sum(), value.min(), value.max());
+    }
+
+    //sum 은 Hibernate 가 Long 으로 돌려주므로 QueryDSL 타입 대신 Number 로 읽음
+    private static AggregateDTO toAggregate(Tuple tuple, int offset) {
+        Object[] row = tuple.toArray();
+        return new AggregateDTO(
+                row[offset] == null ? 0 : ((Number) row[offset]).longValue(),
+                row[offset + 1] == null ? 0 : ((Number) row[offset + 1]).longValue(),
+                row[offset + 2] == null ? null : ((Number) row[offset + 2]).longValue(),
+                row[offset + 3] == null ? null : ((Number) row[offset + 3]).longValue());
+    }
+
+    private <R> List<R> forEachPartition(Function<Range, R> partition) {
+        List<Partition<R>> partitions = ranges().stream()
+                .map(range -> submit(range, partition))
+                .collect(Collectors.toList());
+        List<CompletableFuture<R>> futures = partitions.stream().map(Partition::result).collect(Collectors.toList());
+
+        //한 파티션이 실패하면 나머지 파티션도 취소
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        futures.forEach(future -> future.whenComplete((result, e) -> {
+            if (e != null && !(e instanceof CancellationException)) {
+                failure.compareAndSet(null, e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                partitions.forEach(Partition::cancel);
+            }
+        }));
+
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            partitions.forEach(Partition::cancel);
+            throw new QueryTimeoutException("Partitioned query timed out after " + timeout.toMillis() + "ms", e);
+        } catch (ExecutionException e) {
+            //allOf 는 취소된 파티션의 예외를 돌려줄 수 있으므로 처음 실패한 원인을 던짐
+            Throwable cause = failure.get() != null ? failure.get() : e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            partitions.forEach(Partition::cancel);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for partitioned query", e);
+        }
+        return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+
+    //실행 중인 파티션의 Session 을 기록해 두고 취소할 때 statement 를 취소 (ForkJoinPool 은 cancel 해도 interrupt 하지 않음)
+    private <R> Partition<R> submit(Range range, Function<Range, R> partition) {
+        AtomicReference<Session> running = new AtomicReference<>();
+        CompletableFuture<R> result = CompletableFuture.supplyAsync(sqlStatementCounter.propagate(() -> readOnly.execute(status -> {
+            running.set(em.unwrap(Session.class));
+            try {
+                return partition.apply(range);
+            } finally {
+                running.set(null);
+            }
+        })), pool);
+        return new Partition<>(result, running);
+    }
+
+    //처음/마지막 파티션은 범위를 열어둬서 min/max 조회 이후 추가된 row 도 빠지지 않게 함
+    private List<Range> ranges() {
+        Tuple bounds = readOnly.execute(status -> queryFactory
+                .select(member.id.min(), member.id.max())
+                .from(member)
+                .fetchOne());
+        Long min = bounds == null ? null : bounds.get(0, Long.class);
+        Long max = bounds == null ? null : bounds.get(1, Long.class);
+        if (min == null || max == null) {
+            return List.of(new Range(null, null));
+        }
+
+        long span = max - min + 1;
+        int count = (int) Math.max(1, Math.min(partitions, (span + minPartitionSize - 1) / minPartitionSize));
+        long step = (span + count - 1) / count;
+
+        List<Range> ranges = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Long from = i == 0 ? null : min + i * step;
+            Long to = i == count - 1 ? null : min + (i + 1) * step - 1;
+            ranges.add(new Range(from, to));
+        }
+        return ranges;
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    private record Range(Long from, Long to) {
+        Predicate[] predicates() {
+            return new Predicate[]{
+                    from == null ? null : member.id.goe(from),
+                    to == null ? null : member.id.loe(to)
+            };
+        }
+    }
+
+    private record Cursor<T>(T head, Iterator<T> rows) {
+    }
+
+    private record Partition<R>(CompletableFuture<R> result, AtomicReference<Session> running) {
+
+        void cancel() {
+            result.cancel(true);
+            Session session = running.get();
+            if (session == null) {
+                return;
+            }
+            try {
+                session.cancelQuery();
+            } catch (RuntimeException e) {
+                //이미 끝났거나 닫힌 세션이면 취소할 statement 가 없음
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package study.querydsl.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 한 트랜잭션 동안 team_statistics 에 반영할 변경을 team 별로 모아 두었다가 커밋 직전에 SQL 로 적용한다.
+ * 집계 행은 team 을 만들 때 함께 만든다. count/sum 은 증감으로 갱신하고, min/max 는 빠진 나이가 경계값일 때만 (team_id, age) 인덱스로 다시 구한다.
+ * member 를 다시 읽는 갱신 (경계값, 전체 재계산) 은 집계 행을 먼저 잠가서 동시에 커밋되는 증감과 섞이지 않게 한다.
+ */
+class TeamStatisticsChanges {
+
+    private static final String APPLY_DELTA = "update team_statistics set"
+            + " member_count = member_count + ?,"
+            + " age_sum = age_sum + ?,"
+            + " age_min = case when cast(? as integer) is not null and (age_min is null or age_min > ?) then ? else age_min end,"
+            + " age_max = case when cast(? as integer) is not null and (age_max is null or age_max < ?) then ? else age_max end"
+            + " where team_id = ?";
+
+    private static final String REFRESH_BOUNDS = "update team_statistics set"
+            + " age_min = (select min(m.age) from member m where m.team_id = ?),"
+            + " age_max = (select max(m.age) from member m where m.team_id = ?)"
+            + " where team_id = ? and (age_min >= ? or age_max <= ?)";
+
+    private static final String CREATE = "insert into team_statistics (team_id, member_count, age_sum) values (?, 0, 0)";
+
+    private static final String LOCK = "select team_id from team_statistics where team_id = ? for update";
+
+    private static final String DELETE = "delete from team_statistics where team_id = ?";
+
+    //집계 행이 없던 team (이 기능 이전에 만들어진 team) 도 처리하도록 upsert
+    private static final String RECOMPUTE = "merge into team_statistics (team_id, member_count, age_sum, age_min, age_max) key (team_id)"
+            + " select ?, count(m.member_id), coalesce(sum(m.age), 0), min(m.age), max(m.age) from member m where m.team_id = ?";
+
+    private final Set<Long> creates = new LinkedHashSet<>();
+    private final Map<Long, Delta> deltas = new LinkedHashMap<>();
+    private final Set<Long> recomputes = new LinkedHashSet<>();
+    private final Set<Long> drops = new LinkedHashSet<>();
+
+    void create(Long teamId) {
+        creates.add(teamId);
+    }
+
+    void add(Long teamId, int age) {
+        deltas.computeIfAbsent(teamId, id -> new Delta()).add(age);
+    }
+
+    void remove(Long teamId, int age) {
+        deltas.computeIfAbsent(teamId, id -> new Delta()).remove(age);
+    }
+
+    void recompute(Long teamId) {
+        recomputes.add(teamId);
+    }
+
+    void drop(Long teamId) {
+        drops.add(teamId);
+    }
+
+    boolean isEmpty() {
+        return creates.isEmpty() && deltas.isEmpty() && recomputes.isEmpty() && drops.isEmpty();
+    }
+
+    void apply(Connection connection) throws SQLException {
+        for (Long teamId : creates) {
+            if (!drops.contains(teamId)) {
+                update(connection, CREATE, teamId);
+            }
+        }
+
+        for (Map.Entry<Long, Delta> entry : deltas.entrySet()) {
+            Long teamId = entry.getKey();
+            if (recomputes.contains(teamId) || drops.contains(teamId)) {
+                continue;
+            }
+
+            Delta delta = entry.getValue();
+            if (applyDelta(connection, teamId, delta) == 0) {
+                //집계 행이 없는 team
+                recomputes.add(teamId);
+            } else if (delta.removedMin != null) {
+                //applyDelta 가 이미 행을 잠갔으므로 경계값을 다시 구하는 동안 다른 트랜잭션의 증감이 끼어들지 않음
+                refreshBounds(connection, teamId, delta);
+            }
+        }
+
+        for (Long teamId : recomputes) {
+            if (!drops.contains(teamId)) {
+                lock(connection, teamId);
+                update(connection, RECOMPUTE, teamId, teamId);
+            }
+        }
+
+        for (Long teamId : drops) {
+            update(connection, DELETE, teamId);
+        }
+    }
+
+    private static int applyDelta(Connection connection, Long teamId, Delta delta) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(APPLY_DELTA)) {
+            ps.setLong(1, delta.count);
+            ps.setLong(2, delta.sum);
+            setInteger(ps, 3, delta.addedMin);
+            setInteger(ps, 4, delta.addedMin);
+            setInteger(ps, 5, delta.addedMin);
+            setInteger(ps, 6, delta.addedMax);
+            setInteger(ps, 7, delta.addedMax);
+            setInteger(ps, 8, delta.addedMax);
+            ps.setLong(9, teamId);
+            return ps.executeUpdate();
+        }
+    }
+
+    private static void refreshBounds(Connection connection, Long teamId, Delta delta) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(REFRESH_BOUNDS)) {
+            ps.setLong(1, teamId);
+            ps.setLong(2, teamId);
+            ps.setLong(3, teamId);
+            ps.setInt(4, delta.removedMin);
+            ps.setInt(5, delta.removedMax);
+            ps.executeUpdate();
+        }
+    }
+
+    //READ COMMITTED 에서 member 를 다시 읽기 전에 잠가서 먼저 시작한 증감이 커밋될 때까지 기다림
+    private static void lock(Connection connection, Long teamId) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(LOCK)) {
+            ps.setLong(1, teamId);
+            ps.executeQuery().close();
+        }
+    }
+
+    private static void update(Connection connection, String sql, Long... teamIds) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int i = 0; i < teamIds.length; i++) {
+                ps.setLong(i + 1, teamIds[i]);
+            }
+            ps.executeUpdate();
+        }
+    }
+
+    private static void setInteger(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.INTEGER);
+        } else {
+            ps.setInt(index, value);
+        }
+    }
+
+    private static class Delta {
+
+        long count;
+        long sum;
+        Integer addedMin;
+        Integer addedMax;
+        Integer removedMin;
+        Integer removedMax;
+
+        void add(int age) {
+            count++;
+            sum += age;
+            addedMin = (addedMin == null) ? age : Math.min(addedMin, age);
+            addedMax = (addedMax == null) ? age : Math.max(addedMax, age);
+        }
+
+        void remove(int age) {
+            count--;
+            sum -= age;
+            removedMin = (removedMin == null) ? age : Math.min(removedMin, age);
+            removedMax = (removedMax == null) ? age : Math.max(removedMax, age);
+        }
+    }
+}
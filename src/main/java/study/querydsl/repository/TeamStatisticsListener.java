@@ -0,0 +1,142 @@
+package study.querydsl.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Member insert/update/delete 이벤트를 세션 단위로 모아서 커밋 직전에 team_statistics 에 반영한다.
+ * 같은 트랜잭션에서 실행되므로 롤백되면 집계도 함께 롤백된다.
+ * JPQL bulk 쿼리는 이벤트가 발생하지 않으므로 호출하는 쪽에서 {@link TeamStatisticsRepository#recompute} 를 사용한다.
+ */
+@Component
+@RequiredArgsConstructor
+public class TeamStatisticsListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EntityManagerFactory emf;
+    private final Map<SharedSessionContractImplementor, TeamStatisticsChanges> pending = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            Long teamId = teamId(event.getPersister(), event.getState());
+            if (teamId != null) {
+                changes(event.getSession()).add(teamId, age(event.getPersister(), event.getState()));
+            }
+        } else if (event.getEntity() instanceof Team) {
+            //집계 행을 team 과 같은 트랜잭션에서 만들어 두면 이후 증감은 항상 update 한 번으로 끝남
+            changes(event.getSession()).create((Long) event.getId());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member)) {
+            return;
+        }
+
+        EntityPersister persister = event.getPersister();
+        Long newTeamId = teamId(persister, event.getState());
+        int newAge = age(persister, event.getState());
+        if (event.getOldState() == null) {
+            //이전 상태를 모르면 (detached update) 현재 team 만 다시 집계
+            if (newTeamId != null) {
+                changes(event.getSession()).recompute(newTeamId);
+            }
+            return;
+        }
+
+        Long oldTeamId = teamId(persister, event.getOldState());
+        int oldAge = age(persister, event.getOldState());
+        if (Objects.equals(oldTeamId, newTeamId) && oldAge == newAge) {
+            return;
+        }
+
+        TeamStatisticsChanges changes = changes(event.getSession());
+        if (oldTeamId != null) {
+            changes.remove(oldTeamId, oldAge);
+        }
+        if (newTeamId != null) {
+            changes.add(newTeamId, newAge);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            Long teamId = teamId(event.getPersister(), event.getDeletedState());
+            if (teamId != null) {
+                changes(event.getSession()).remove(teamId, age(event.getPersister(), event.getDeletedState()));
+            }
+        } else if (event.getEntity() instanceof Team) {
+            changes(event.getSession()).drop((Long) event.getId());
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private TeamStatisticsChanges changes(EventSource session) {
+        return pending.computeIfAbsent(session, s -> {
+            TeamStatisticsChanges changes = new TeamStatisticsChanges();
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) completing -> {
+                pending.remove(s);
+                if (!changes.isEmpty()) {
+                    completing.doWork(changes::apply);
+                }
+            });
+            //롤백 등으로 before 단계가 실행되지 않은 경우 정리
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, completed) -> pending.remove(s));
+            return changes;
+        });
+    }
+
+    private static Long teamId(EntityPersister persister, Object[] state) {
+        Object team = state[persister.getEntityMetamodel().getPropertyIndex("team")];
+        if (team == null) {
+            return null;
+        }
+        if (team instanceof HibernateProxy proxy) {
+            return (Long) proxy.getHibernateLazyInitializer().getIdentifier();
+        }
+        return ((Team) team).getId();
+    }
+
+    private static int age(EntityPersister persister, Object[] state) {
+        return (Integer) state[persister.getEntityMetamodel().getPropertyIndex("age")];
+    }
+}
@@ -0,0 +1,54 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.QTeamStatisticsDTO;
+import study.querydsl.dto.TeamStatisticsDTO;
+
+import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.List;
+
+import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.entity.QTeamStatistics.teamStatistics;
+
+@Repository
+@RequiredArgsConstructor
+public class TeamStatisticsRepository {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+
+    //member 전체 groupBy 대신 team 수 만큼만 읽음
+    @Transactional(readOnly = true)
+    public List<TeamStatisticsDTO> findAll() {
+        return queryFactory
+                .select(new QTeamStatisticsDTO(
+                        team.id,
+                        team.name,
+                        teamStatistics.memberCount.coalesce(0L),
+                        teamStatistics.ageSum.coalesce(0L),
+                        teamStatistics.ageMin,
+                        teamStatistics.ageMax))
+                .from(team)
+                .leftJoin(teamStatistics).on(teamStatistics.teamId.eq(team.id))
+                .orderBy(team.id.asc())
+                .fetch();
+    }
+
+    /**
+     * 엔티티 이벤트를 거치지 않는 변경 (JPQL bulk 등) 이후 해당 team 의 집계를 member 테이블에서 다시 계산한다.
+     * 호출한 트랜잭션 안에서 실행된다.
+     */
+    @Transactional
+    public void recompute(Collection<Long> teamIds) {
+        TeamStatisticsChanges changes = new TeamStatisticsChanges();
+        teamIds.forEach(changes::recompute);
+        if (!changes.isEmpty()) {
+            em.unwrap(Session.class).doWork(changes::apply);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package study.querydsl.service;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberImportResultDTO;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * member 를 JDBC batch 로 대량 적재한다.
+ * 호출자에게 트랜잭션이 없으면 team 생성과 member chunk 마다 별도 트랜잭션으로 커밋해서
+ * 한 트랜잭션이 수백만 건의 undo/락과 커밋 직전 리스너 (team 집계, 인메모리 인덱스) 작업을 떠안지 않게 한다.
+ * 중간에 실패하면 이미 커밋된 chunk 는 남는다.
+ */
+@Service
+@RequiredArgsConstructor
+public class MemberImportService {
+
+    private final EntityManager em;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}")
+    private int batchSize;
+
+    @Value("${member.import.chunk-size:10000}")
+    private int chunkSize;
+
+    @Value("${member.import.max-count:10000000}")
+    private int maxCount;
+
+    public MemberImportResultDTO importMembers(int memberCount, List<String> teamNames) {
+        validate(memberCount, teamNames);
+        long start = System.nanoTime();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        List<Long> teamIds = transactionTemplate.execute(status -> {
+            List<Long> ids = new ArrayList<>();
+            for (String teamName : teamNames) {
+                Team team = new Team(teamName.trim());
+                em.persist(team);
+                ids.add(team.getId());
+            }
+            em.flush();
+            em.clear();
+            return ids;
+        });
+
+        for (int chunkStart = 0; chunkStart < memberCount; chunkStart += chunkSize) {
+            int from = chunkStart;
+            int to = Math.min(memberCount, chunkStart + chunkSize);
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = from; i < to; i++) {
+                    //Team.members 컬렉션에 쌓이지 않도록 연관관계 편의 메서드 대신 프록시만 연결
+                    Member member = new Member("member" + i, i % 100);
+                    if (!teamIds.isEmpty()) {
+                        member.setTeam(em.getReference(Team.class, teamIds.get(i % teamIds.size())));
+                    }
+                    em.persist(member);
+
+                    if ((i + 1 - from) % batchSize == 0) {
+                        em.flush();
+                        em.clear();
+                    }
+                }
+                em.flush();
+                em.clear();
+                evictTeamMembersAfterCommit(teamIds);
+            });
+        }
+
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return new MemberImportResultDTO(memberCount, teamIds.size(), elapsedMillis, memberCount * 1000L / elapsedMillis);
+    }
+
+    private void validate(int memberCount, List<String> teamNames) {
+        if (memberCount < 0 || memberCount > maxCount) {
+            throw new IllegalArgumentException("Member count must be between 0 and " + maxCount + ": " + memberCount);
+        }
+        if (teamNames == null) {
+            throw new IllegalArgumentException("Team names must not be null");
+        }
+
+        Set<String> names = new HashSet<>();
+        for (String teamName : teamNames) {
+            if (!hasText(teamName)) {
+                throw new IllegalArgumentException("Team name must not be blank: " + teamNames);
+            }
+            if (!names.add(teamName.trim())) {
+                throw new IllegalArgumentException("Duplicate team name: " + teamName);
+            }
+        }
+    }
+
+    //Team.members 를 거치지 않고 FK 만 채우므로 그 사이에 2차 캐시에 올라간 컬렉션은 커밋 이후 제거
+    private void evictTeamMembersAfterCommit(List<Long> teamIds) {
+        Cache cache = em.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                teamIds.forEach(teamId -> cache.evictCollectionData(Team.class.getName() + ".members", teamId));
+            }
+        });
+    }
+}
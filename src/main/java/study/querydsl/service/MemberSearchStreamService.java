@@ -0,0 +1,65 @@
+package study.querydsl.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDTO;
+import study.querydsl.dto.MemberTeamSliceDTO;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * 검색 결과를 keyset slice 단위로 끌어와서 Flux 로 흘려보낸다.
+ * slice 하나가 트랜잭션 하나이므로 페이지 사이에는 커넥션을 잡고 있지 않고,
+ * 다음 slice 는 구독자가 앞 slice 를 다 받은 뒤 원소를 더 요청할 때 조회하며 (미리 읽지 않음) 구독이 취소되면 더 조회하지 않는다.
+ */
+@Service
+@RequiredArgsConstructor
+public class MemberSearchStreamService {
+
+    private final MemberRepository memberRepository;
+
+    public Flux<MemberTeamDTO> search(MemberSearchCondition condition, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+
+        //generate 는 요청된 원소 수만큼만 호출되므로 slice 조회도 요청이 있을 때만 일어난다
+        return Flux.<MemberTeamDTO, SliceState>generate(SliceState::first, (state, sink) -> {
+                    SliceState next = state;
+                    while (!next.hasBuffered() && next.hasNext()) {
+                        next = fetchSlice(condition, next, pageSize);
+                    }
+                    if (next.hasBuffered()) {
+                        sink.next(next.rows().next());
+                    }
+                    if (!next.hasBuffered() && !next.hasNext()) {
+                        sink.complete();
+                    }
+                    return next;
+                })
+                //JDBC 는 블로킹이므로 구독과 첫 요청은 boundedElastic 에서 처리. 이후 요청은 요청한 스레드에서 바로 처리해서
+                //writer 가 작은 단위로 요청할 때마다 스레드를 옮기지 않음 (MVC 는 async executor 스레드에서 요청)
+                .subscribeOn(Schedulers.boundedElastic(), false);
+    }
+
+    private SliceState fetchSlice(MemberSearchCondition condition, SliceState state, int pageSize) {
+        MemberTeamSliceDTO slice = memberRepository.searchSlice(condition, state.cursor(), pageSize);
+        return new SliceState(slice.getContent().iterator(), slice.getNextCursor(), slice.isHasNext());
+    }
+
+    private record SliceState(Iterator<MemberTeamDTO> rows, String cursor, boolean hasNext) {
+
+        static SliceState first() {
+            return new SliceState(Collections.emptyIterator(), null, true);
+        }
+
+        boolean hasBuffered() {
+            return rows.hasNext();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package study.querydsl;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * {@link CommittingTest} 가 커밋한 member/team/team_statistics 를 지우고 2차 캐시를 비운다.
+ */
+public class CommittedDataCleaner implements AfterEachCallback {
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        ApplicationContext applicationContext = SpringExtension.getApplicationContext(context);
+        EntityManager em = applicationContext.getBean(EntityManager.class);
+
+        new TransactionTemplate(applicationContext.getBean(PlatformTransactionManager.class)).executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+            em.createNativeQuery("delete from team_statistics").executeUpdate();
+        });
+        applicationContext.getBean(EntityManagerFactory.class).getCache().evictAll();
+    }
+}
@@ -0,0 +1,22 @@
+package study.querydsl;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @Transactional 롤백 대신 실제로 커밋해야 하는 테스트 (2차 캐시, 커밋 직전/이후 리스너, 별도 트랜잭션 조회) 용.
+ * 공유 TCP DB 를 지우지 않도록 컨텍스트마다 별도 in-memory H2 를 쓰고, 테스트가 끝날 때마다 {@link CommittedDataCleaner} 가 정리한다.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:committing-${random.uuid};DB_CLOSE_DELAY=-1")
+@ExtendWith(CommittedDataCleaner.class)
+public @interface CommittingTest {
+}
@@ -18,8 +18,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberDTO;
+import study.querydsl.dto.MemberDTOProjection;
 import study.querydsl.dto.QMemberDTO;
 import study.querydsl.dto.UserDTO;
+import study.querydsl.dto.UserDTOProjection;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.QTeam;
@@ -613,6 +615,32 @@ public class QuerydslBasicTest {
         }
     }
 
+    @Test
+    public void findDTOByDirectProjection() throws Exception {
+        //given
+        QMember memberSub = new QMember("memberSub");
+
+        //when
+        List<MemberDTO> memberDTOs = queryFactory
+                .select(new MemberDTOProjection(member.username, member.age))
+                .from(member)
+                .fetch();
+
+        //생성자 인자 위치로 매핑되므로 alias 없이 서브쿼리도 그대로 사용
+        List<UserDTO> userDTOs = queryFactory
+                .select(new UserDTOProjection(
+                        member.username,
+                        JPAExpressions
+                                .select(memberSub.age.max())
+                                .from(memberSub)))
+                .from(member)
+                .fetch();
+
+        //then
+        assertThat(memberDTOs).extracting("username").containsExactlyInAnyOrder("member1", "member2", "member3", "member4");
+        assertThat(userDTOs).extracting("age").containsOnly(40);
+    }
+
     @Test
     public void dynamicQuery_BooleanBuilder() throws Exception {
         //given
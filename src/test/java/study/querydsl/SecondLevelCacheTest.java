@@ -0,0 +1,107 @@
+package study.querydsl;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+//2차 캐시는 커밋 이후에 채워지므로 @Transactional 롤백 대신 직접 커밋한다
+@CommittingTest
+class SecondLevelCacheTest {
+
+    @Autowired EntityManager em;
+    @Autowired EntityManagerFactory emf;
+    @Autowired JPAQueryFactory queryFactory;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired MemberJpaRepository memberJpaRepository;
+
+    Long memberId;
+
+    @BeforeEach
+    public void before() {
+        memberId = transactionTemplate.execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+
+            Member member1 = new Member("member1", 10, teamA);
+            em.persist(member1);
+            return member1.getId();
+        });
+    }
+
+    @Test
+    public void findByIdHitsSecondLevelCache() throws Exception {
+        //given
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        //when
+        memberJpaRepository.findById(memberId);
+        memberJpaRepository.findById(memberId);
+
+        //then
+        assertThat(statistics.getSecondLevelCacheHitCount()).isGreaterThan(0);
+    }
+
+    @Test
+    public void bulkUpdateEvictsCachedMember() throws Exception {
+        //given
+        memberJpaRepository.findById(memberId);
+
+        //when
+        transactionTemplate.executeWithoutResult(status -> queryFactory
+                .update(member)
+                .set(member.age, member.age.add(10))
+                .execute());
+
+        //then
+        Member result = memberJpaRepository.findById(memberId).get();
+        assertThat(result.getAge()).isEqualTo(20);
+    }
+
+    @Test
+    public void moveAndRemoveEvictsCachedTeamMembers() throws Exception {
+        //given
+        Long[] ids = transactionTemplate.execute(status -> {
+            Team teamA = em.find(Member.class, memberId).getTeam();
+            Team teamB = new Team("teamB");
+            em.persist(teamB);
+            Member member2 = new Member("member2", 20, teamA);
+            em.persist(member2);
+            return new Long[]{teamA.getId(), teamB.getId(), member2.getId()};
+        });
+        //teamA.members 컬렉션을 2차 캐시에 올림
+        transactionTemplate.executeWithoutResult(status -> em.find(Team.class, ids[0]).getMembers().size());
+
+        //when
+        transactionTemplate.executeWithoutResult(status -> {
+            em.find(Member.class, memberId).changeTeam(em.find(Team.class, ids[1]));
+            em.remove(em.find(Member.class, ids[2]));
+        });
+
+        //then
+        //캐시가 남아 있으면 옮긴 member1 이 그대로 보이고, 삭제한 member2 는 ObjectNotFoundException
+        List<String> teamA = transactionTemplate.execute(status -> em.find(Team.class, ids[0]).getMembers().stream()
+                .map(Member::getUsername)
+                .collect(Collectors.toList()));
+        List<String> teamB = transactionTemplate.execute(status -> em.find(Team.class, ids[1]).getMembers().stream()
+                .map(Member::getUsername)
+                .collect(Collectors.toList()));
+        assertThat(teamA).isEmpty();
+        assertThat(teamB).containsExactly("member1");
+    }
+}
@@ -0,0 +1,126 @@
+package study.querydsl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.TeamStatisticsDTO;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.TeamStatisticsRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+//집계는 커밋 직전에 반영되므로 @Transactional 롤백 대신 직접 커밋한다
+@CommittingTest
+class TeamStatisticsTest {
+
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamStatisticsRepository teamStatisticsRepository;
+
+    @Test
+    public void maintainIncrementally() throws Exception {
+        //given
+        Long[] ids = transactionTemplate.execute(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+
+            Member member1 = new Member("member1", 10, teamA);
+            Member member2 = new Member("member2", 20, teamA);
+            em.persist(member1);
+            em.persist(member2);
+            em.persist(new Member("member3", 30, teamA));
+            em.persist(new Member("member4", 40, teamB));
+            return new Long[]{member1.getId(), member2.getId(), teamB.getId()};
+        });
+
+        //when
+        transactionTemplate.executeWithoutResult(status -> {
+            em.remove(em.find(Member.class, ids[0]));
+            em.find(Member.class, ids[1]).changeTeam(em.find(Team.class, ids[2]));
+        });
+
+        //then
+        assertThat(teamStatisticsRepository.findAll())
+                .extracting("teamName", "memberCount", "ageSum", "ageMin", "ageMax", "ageAvg")
+                .containsExactly(
+                        tuple("teamA", 1L, 30L, 30, 30, 30.0),
+                        tuple("teamB", 2L, 60L, 20, 40, 30.0));
+    }
+
+    @Test
+    public void recomputeAfterBulkUpdate() throws Exception {
+        //given
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+        });
+
+        //when
+        memberRepository.bulkAddAge(new MemberSearchCondition(null, "teamA", null, null), 5);
+
+        //then
+        List<TeamStatisticsDTO> result = teamStatisticsRepository.findAll();
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getAgeSum()).isEqualTo(40);
+        assertThat(result.get(0).getAgeMin()).isEqualTo(15);
+        assertThat(result.get(0).getAgeMax()).isEqualTo(25);
+    }
+
+    @Test
+    public void createRowWithTeam() throws Exception {
+        //given
+
+        //when
+        Long teamId = transactionTemplate.execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            return teamA.getId();
+        });
+
+        //then
+        //team 을 만든 트랜잭션에서 집계 행도 만들어 두므로 이후 증감은 update 만 한다
+        Object[] row = transactionTemplate.execute(status -> (Object[]) em
+                .createNativeQuery("select member_count, age_sum, age_min from team_statistics where team_id = ?")
+                .setParameter(1, teamId)
+                .getSingleResult());
+        assertThat(((Number) row[0]).longValue()).isEqualTo(0);
+        assertThat(((Number) row[1]).longValue()).isEqualTo(0);
+        assertThat(row[2]).isNull();
+    }
+
+    @Test
+    public void upsertMissingRow() throws Exception {
+        //given
+        //집계 행이 없던 team (기능 도입 이전 데이터)
+        Long teamId = transactionTemplate.execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            em.persist(new Member("member1", 10, teamA));
+            return teamA.getId();
+        });
+        transactionTemplate.executeWithoutResult(status -> em
+                .createNativeQuery("delete from team_statistics where team_id = ?")
+                .setParameter(1, teamId)
+                .executeUpdate());
+
+        //when
+        transactionTemplate.executeWithoutResult(status -> em.persist(new Member("member2", 20, em.find(Team.class, teamId))));
+
+        //then
+        assertThat(teamStatisticsRepository.findAll())
+                .extracting("memberCount", "ageSum", "ageMin", "ageMax")
+                .containsExactly(tuple(2L, 30L, 10, 20));
+    }
+}
@@ -0,0 +1,107 @@
+package study.querydsl.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MemberResponseCacheFilterTest {
+
+    DataVersion dataVersion = new DataVersion();
+    MemberResponseCacheFilter filter = new MemberResponseCacheFilter(dataVersion, new SimpleMeterRegistry(), true, DataSize.ofMegabytes(1), Duration.ofMinutes(1));
+    AtomicInteger executions = new AtomicInteger();
+
+    FilterChain chain = (request, response) -> {
+        executions.incrementAndGet();
+        response.setContentType("application/json");
+        ((HttpServletResponse) response).addHeader("X-Total-Count", "1");
+        ((HttpServletResponse) response).addHeader(HttpHeaders.SET_COOKIE, "member-rw-session=client1");
+        response.getOutputStream().write("[{\"username\":\"member1\"}]".getBytes(StandardCharsets.UTF_8));
+    };
+
+    @Test
+    public void cacheByNormalizedQuery() throws Exception {
+        //given
+        MockHttpServletResponse first = get("teamName=teamA&ageGoe=10&username=", null);
+
+        //when
+        MockHttpServletResponse second = get("ageGoe=10&teamName=teamA", null);
+        MockHttpServletResponse notModified = get("ageGoe=10&teamName=teamA", first.getHeader(HttpHeaders.ETAG));
+
+        //then
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(second.getContentAsString()).isEqualTo(first.getContentAsString());
+        assertThat(second.getHeader(HttpHeaders.ETAG)).isEqualTo(first.getHeader(HttpHeaders.ETAG));
+        assertThat(notModified.getStatus()).isEqualTo(304);
+        assertThat(notModified.getContentLength()).isEqualTo(0);
+    }
+
+    @Test
+    public void replayControllerHeaders() throws Exception {
+        //given
+        get("teamName=teamA", null);
+
+        //when
+        MockHttpServletResponse cached = get("teamName=teamA", null);
+
+        //then
+        //쿠키는 클라이언트마다 다르므로 캐시 응답에 붙이지 않음
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(cached.getHeaders("X-Total-Count")).containsExactly("1");
+        assertThat(cached.getHeader(HttpHeaders.SET_COOKIE)).isNull();
+    }
+
+    @Test
+    public void expireAfterTtl() throws Exception {
+        //given
+        filter = new MemberResponseCacheFilter(dataVersion, new SimpleMeterRegistry(), true, DataSize.ofMegabytes(1), Duration.ofMillis(100));
+        get("teamName=teamA", null);
+
+        //when
+        Thread.sleep(200);
+        get("teamName=teamA", null);
+
+        //then
+        assertThat(executions.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void invalidateByDataVersion() throws Exception {
+        //given
+        MockHttpServletResponse first = get("teamName=teamA", null);
+
+        //when
+        dataVersion.bump();
+        MockHttpServletResponse afterWrite = get("teamName=teamA", first.getHeader(HttpHeaders.ETAG));
+
+        //then
+        assertThat(executions.get()).isEqualTo(2);
+        assertThat(afterWrite.getStatus()).isEqualTo(200);
+        assertThat(afterWrite.getHeader(HttpHeaders.ETAG)).isNotEqualTo(first.getHeader(HttpHeaders.ETAG));
+    }
+
+    private MockHttpServletResponse get(String query, String ifNoneMatch) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v2/members");
+        for (String param : query.split("&")) {
+            String[] pair = param.split("=", -1);
+            request.addParameter(pair[0], pair[1]);
+        }
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
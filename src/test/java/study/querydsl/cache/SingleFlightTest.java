@@ -0,0 +1,87 @@
+package study.querydsl.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SingleFlightTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    SingleFlight<String, Integer> singleFlight = new SingleFlight<>("test", meterRegistry, Duration.ofSeconds(5));
+
+    @Test
+    public void shareInFlightCall() throws Exception {
+        //given
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CompletableFuture<Integer> leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("teamA", () -> {
+            started.countDown();
+            await(release);
+            return executions.incrementAndGet();
+        }), executor);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        //when
+        CompletableFuture<Integer> follower = CompletableFuture.supplyAsync(() -> singleFlight.execute("teamA", executions::incrementAndGet), executor);
+        while (meterRegistry.get("member.singleflight.calls").tag("role", "follower").counter().count() < 1) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        //then
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(singleFlight.coalescingRatio()).isEqualTo(0.5);
+
+        //실행이 끝난 뒤에는 다시 실행
+        assertThat(singleFlight.execute("teamA", executions::incrementAndGet)).isEqualTo(2);
+        executor.shutdown();
+    }
+
+    @Test
+    public void followerTimeout() throws Exception {
+        //given
+        SingleFlight<String, Integer> shortWait = new SingleFlight<>("short", meterRegistry, Duration.ofMillis(100));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CompletableFuture<Integer> leader = CompletableFuture.supplyAsync(() -> shortWait.execute("teamA", () -> {
+            started.countDown();
+            await(release);
+            return 1;
+        }), executor);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        //when, then
+        //follower 만 포기하고 leader 는 계속 실행
+        assertThatThrownBy(() -> shortWait.execute("teamA", () -> 2)).isInstanceOf(QueryTimeoutException.class);
+        release.countDown();
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        executor.shutdown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
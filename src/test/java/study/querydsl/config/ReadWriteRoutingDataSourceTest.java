@@ -0,0 +1,106 @@
+package study.querydsl.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.CommittingTest;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * primary/replica 를 별도 H2 메모리 DB 로 두고 JPA 트랜잭션 (JpaTransactionManager) 을 거쳐 라우팅을 검증한다.
+ * replica 에는 복제가 없으므로 어느 DB 에서 읽었는지 데이터로 구분된다.
+ */
+@CommittingTest
+@TestPropertySource(properties = {
+        "member.datasource.routing=true",
+        "member.datasource.read-your-writes-window=1m",
+        "member.datasource.replica.jdbc-url=jdbc:h2:mem:replica-${random.uuid};DB_CLOSE_DELAY=-1",
+        "member.datasource.replica.username=sa",
+        "member.datasource.replica.password="
+})
+public class ReadWriteRoutingDataSourceTest {
+
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired DataSource dataSource;
+    @Autowired @Qualifier("primaryDataSource") DataSource primary;
+    @Autowired @Qualifier("replicaDataSource") DataSource replica;
+
+    ReadWriteRoutingDataSource routing;
+    TransactionTemplate write;
+    TransactionTemplate read;
+
+    @BeforeEach
+    public void before() throws Exception {
+        routing = dataSource.unwrap(ReadWriteRoutingDataSource.class);
+        write = new TransactionTemplate(transactionManager);
+        read = new TransactionTemplate(transactionManager);
+        read.setReadOnly(true);
+
+        //ddl-auto 는 primary 에만 적용되므로 스키마만 replica 로 복사
+        JdbcTemplate replicaJdbc = new JdbcTemplate(replica);
+        Long tables = replicaJdbc.queryForObject("select count(*) from information_schema.tables where table_name = 'MEMBER'", Long.class);
+        if (tables == 0) {
+            new JdbcTemplate(primary).queryForList("script nodata", String.class).stream()
+                    .filter(sql -> !sql.startsWith("--"))
+                    .forEach(replicaJdbc::execute);
+        }
+    }
+
+    @AfterEach
+    public void after() {
+        routing.unbindSession();
+    }
+
+    @Test
+    public void routeByReadOnly() throws Exception {
+        //given
+        write.executeWithoutResult(status -> em.persist(new Member("member1", 10)));
+
+        //when
+        Long readOnlyCount = read.execute(status -> countMembers());
+        Long readWriteCount = write.execute(status -> countMembers());
+
+        //then
+        assertThat(readOnlyCount).isEqualTo(0);
+        assertThat(readWriteCount).isEqualTo(1);
+    }
+
+    @Test
+    public void readYourWritesPerSession() throws Exception {
+        //given
+        routing.bindSession("writer");
+        Long beforeWrite = read.execute(status -> countMembers());
+        write.executeWithoutResult(status -> em.persist(new Member("member1", 10)));
+
+        //when
+        Long writer = read.execute(status -> countMembers());
+        routing.bindSession("other");
+        Long other = read.execute(status -> countMembers());
+        routing.unbindSession();
+        Long noSession = read.execute(status -> countMembers());
+
+        //then
+        //쓴 세션만 primary 에서 읽고, 다른 세션과 세션 없는 스레드는 replica 에서 읽는다
+        assertThat(beforeWrite).isEqualTo(0);
+        assertThat(writer).isEqualTo(1);
+        assertThat(other).isEqualTo(0);
+        assertThat(noSession).isEqualTo(0);
+    }
+
+    //2차 캐시를 거치지 않도록 JPQL count 로 확인
+    private Long countMembers() {
+        return em.createQuery("select count(m) from Member m", Long.class).getSingleResult();
+    }
+}
@@ -0,0 +1,89 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.CommittingTest;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//export 는 응답 스트림을 별도 스레드에서 쓰므로 데이터를 직접 커밋한다
+@CommittingTest
+@AutoConfigureMockMvc
+class MemberExportTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    Long[] ids;
+
+    @BeforeEach
+    public void before() {
+        ids = transactionTemplate.execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+
+            Member member1 = new Member("member1", 10, teamA);
+            Member member2 = new Member("kim, \"junior\"\r\n", 20, teamA);
+            Member member3 = new Member("member3", 30);
+            em.persist(member1);
+            em.persist(member2);
+            em.persist(member3);
+            return new Long[]{member1.getId(), member2.getId(), member3.getId(), teamA.getId()};
+        });
+    }
+
+    @Test
+    public void exportCsv() throws Exception {
+        //given
+
+        //when
+        String result = export("csv", "");
+
+        //then
+        assertThat(result).isEqualTo("memberId,username,age,teamId,teamName\n"
+                + ids[0] + ",member1,10," + ids[3] + ",teamA\n"
+                + ids[1] + ",\"kim, \"\"junior\"\"\r\n\",20," + ids[3] + ",teamA\n"
+                + ids[2] + ",member3,30,,\n");
+    }
+
+    @Test
+    public void exportNdjson() throws Exception {
+        //given
+
+        //when
+        String result = export("ndjson", "&teamName=teamA");
+
+        //then
+        String[] lines = result.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).contains("\"username\":\"member1\"", "\"teamName\":\"teamA\"");
+        assertThat(lines[1]).contains("\"username\":\"kim, \\\"junior\\\"\\r\\n\"");
+    }
+
+    private String export(String format, String query) throws Exception {
+        MvcResult started = mockMvc.perform(get("/v1/members/export?format=" + format + query))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,159 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.CommittingTest;
+import study.querydsl.config.ReadYourWritesFilter;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * leader 의 content 조회가 끝난 직후에 멈춰 두고 follower 가 그 결과에 합류하는지 확인한다.
+ * leader 는 별도 스레드의 요청이므로 데이터를 직접 커밋한다.
+ */
+@CommittingTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = "member.web.response-cache.enabled=false")
+class MemberSearchCoalescingTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired ObjectMapper objectMapper;
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired PausingStatementListener pausingStatementListener;
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Long teamId;
+
+    @BeforeEach
+    public void before() {
+        teamId = transactionTemplate.execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            em.persist(new Member("member1", 10, teamA));
+            return teamA.getId();
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        pausingStatementListener.release();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void followerSeesWriteCommittedAfterLeaderStarted() throws Exception {
+        //given
+        CompletableFuture<JsonNode> leader = startPausedLeader();
+
+        //when
+        transactionTemplate.executeWithoutResult(status -> em.persist(new Member("member2", 20, em.find(Team.class, teamId))));
+        JsonNode follower = search(get("/v2/members").param("teamName", "teamA"));
+        pausingStatementListener.release();
+
+        //then
+        //같은 키로 합류했다면 member2 를 커밋하기 전에 읽은 leader 의 content 를 받음
+        assertThat(follower.get("content").findValuesAsText("username")).containsExactlyInAnyOrder("member1", "member2");
+        assertThat(leader.get(5, TimeUnit.SECONDS).get("content").findValuesAsText("username")).containsExactly("member1");
+    }
+
+    @Test
+    public void recentWriterDoesNotJoinFlight() throws Exception {
+        //given
+        CompletableFuture<JsonNode> leader = startPausedLeader();
+
+        //when
+        //leader 가 멈춰 있는 동안 끝나야 함
+        JsonNode writer = search(get("/v2/members").param("teamName", "teamA")
+                .requestAttr(ReadYourWritesFilter.RECENT_WRITER_ATTRIBUTE, Boolean.TRUE));
+
+        //then
+        assertThat(leader).isNotDone();
+        assertThat(writer.get("content").findValuesAsText("username")).containsExactly("member1");
+        pausingStatementListener.release();
+        assertThat(leader.get(5, TimeUnit.SECONDS).get("content").findValuesAsText("username")).containsExactly("member1");
+    }
+
+    private CompletableFuture<JsonNode> startPausedLeader() throws Exception {
+        CountDownLatch paused = pausingStatementListener.pauseAfterNextStatement();
+        CompletableFuture<JsonNode> leader = CompletableFuture.supplyAsync(() -> {
+            try {
+                return search(get("/v2/members").param("teamName", "teamA"));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }, executor);
+        assertThat(paused.await(5, TimeUnit.SECONDS)).isTrue();
+        return leader;
+    }
+
+    private JsonNode search(MockHttpServletRequestBuilder request) throws Exception {
+        String body = mockMvc.perform(request).andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    @TestConfiguration
+    static class PausingStatementConfig {
+
+        @Bean
+        PausingStatementListener pausingStatementListener() {
+            return new PausingStatementListener();
+        }
+    }
+
+    //pause 이후 처음 실행된 SQL 의 스레드를 release 까지 멈춘다
+    static class PausingStatementListener extends SimpleJdbcEventListener {
+
+        private final AtomicBoolean armed = new AtomicBoolean();
+        private volatile CountDownLatch paused = new CountDownLatch(1);
+        private volatile CountDownLatch released = new CountDownLatch(1);
+
+        CountDownLatch pauseAfterNextStatement() {
+            paused = new CountDownLatch(1);
+            released = new CountDownLatch(1);
+            armed.set(true);
+            return paused;
+        }
+
+        void release() {
+            released.countDown();
+        }
+
+        @Override
+        public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+            if (armed.compareAndSet(true, false)) {
+                paused.countDown();
+                try {
+                    released.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
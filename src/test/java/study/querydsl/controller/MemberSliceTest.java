@@ -0,0 +1,42 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class MemberSliceTest {
+
+    @Autowired MockMvc mockMvc;
+
+    @Test
+    public void rejectOutOfRangeSize() throws Exception {
+        mockMvc.perform(get("/v4/members").param("size", "0")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v4/members").param("size", "-1")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v4/members").param("size", "101")).andExpect(status().isBadRequest());
+        //limit(size + 1) overflow
+        mockMvc.perform(get("/v4/members").param("size", String.valueOf(Integer.MAX_VALUE))).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v4/members").param("size", "100")).andExpect(status().isOk());
+    }
+
+    @Test
+    public void rejectInvalidCursor() throws Exception {
+        mockMvc.perform(get("/v4/members").param("cursor", "not a cursor!")).andExpect(status().isBadRequest());
+        //Base64 는 맞지만 숫자가 아님
+        mockMvc.perform(get("/v4/members").param("cursor", "YWJj")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void rejectOutOfRangeStreamPageSize() throws Exception {
+        mockMvc.perform(get("/v5/members").param("pageSize", "0")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v5/members").param("pageSize", "1001")).andExpect(status().isBadRequest());
+    }
+}
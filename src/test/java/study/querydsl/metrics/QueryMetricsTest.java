@@ -0,0 +1,54 @@
+package study.querydsl.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.CountStrategy;
+import study.querydsl.repository.MemberRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+public class QueryMetricsTest {
+
+    @Autowired MeterRegistry meterRegistry;
+    @Autowired SqlStatementCounter sqlStatementCounter;
+    @Autowired MemberRepository memberRepository;
+
+    @Test
+    public void timerPerRepositoryMethod() throws Exception {
+        //given
+        MemberSearchCondition condition = new MemberSearchCondition(null, "teamA", null, null);
+
+        //when
+        memberRepository.searchPageSimple(condition, PageRequest.of(0, 10));
+        memberRepository.searchPageSimple(condition, PageRequest.of(0, 10));
+
+        //then
+        Timer timer = meterRegistry.get("member.repository")
+                .tag("class", "MemberRepositoryImpl")
+                .tag("method", "searchPageSimple")
+                .tag("exception", "none")
+                .timer();
+        assertThat(timer.count()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    public void countStatementsOnWorkerThreads() throws Exception {
+        //given
+        sqlStatementCounter.reset();
+
+        //when
+        //content 는 호출한 스레드, count 는 async executor 스레드에서 실행
+        memberRepository.searchPage(new MemberSearchCondition(null, "teamA", null, null), PageRequest.of(0, 10), CountStrategy.ASYNC);
+
+        //then
+        assertThat(sqlStatementCounter.count()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,45 @@
+package study.querydsl.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class SlowQueryLogTest {
+
+    SlowQueryLog slowQueryLog = new SlowQueryLog(Duration.ofMillis(100), 2);
+
+    @Test
+    public void formatOnlySlowQueries() throws Exception {
+        //given
+        AtomicInteger formatted = new AtomicInteger();
+
+        //when
+        slowQueryLog.record("fast", () -> "q" + formatted.incrementAndGet(), TimeUnit.MILLISECONDS.toNanos(99));
+        slowQueryLog.record("slow", () -> "q" + formatted.incrementAndGet(), TimeUnit.MILLISECONDS.toNanos(150));
+
+        //then
+        assertThat(formatted.get()).isEqualTo(1);
+        assertThat(slowQueryLog.recent())
+                .extracting("source", "query", "elapsedMillis")
+                .containsExactly(tuple("slow", "q1", 150L));
+    }
+
+    @Test
+    public void keepMostRecent() throws Exception {
+        //given
+        long slow = TimeUnit.SECONDS.toNanos(1);
+
+        //when
+        slowQueryLog.record("first", () -> "q1", slow);
+        slowQueryLog.record("second", () -> "q2", slow);
+        slowQueryLog.record("third", () -> "q3", slow);
+
+        //then
+        assertThat(slowQueryLog.recent()).extracting("source").containsExactly("second", "third");
+    }
+}
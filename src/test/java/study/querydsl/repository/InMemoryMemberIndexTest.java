@@ -0,0 +1,77 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.CommittingTest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//listener 는 커밋 이후에 반영하므로 데이터를 직접 커밋한다
+@CommittingTest
+class InMemoryMemberIndexTest {
+
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired InMemoryMemberIndex inMemoryMemberIndex;
+    @Autowired AtomicReference<Runnable> afterLoad;
+
+    @Test
+    public void keepWritesCommittedDuringInitialReload() throws Exception {
+        //given
+        Long teamId = transactionTemplate.execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            em.persist(new Member("member1", 10, teamA));
+            return teamA.getId();
+        });
+        //적재 조회가 끝난 뒤, index 에 반영되기 전에 커밋
+        afterLoad.set(() -> transactionTemplate.executeWithoutResult(status ->
+                em.persist(new Member("member2", 20, em.find(Team.class, teamId)))));
+
+        //when
+        assertThat(inMemoryMemberIndex.isReady()).isFalse();
+        inMemoryMemberIndex.reload();
+
+        //then
+        assertThat(inMemoryMemberIndex.search(new MemberSearchCondition(null, "teamA", null, null)))
+                .extracting("username")
+                .containsExactlyInAnyOrder("member1", "member2");
+    }
+
+    @TestConfiguration
+    static class SlowLoadConfig {
+
+        @Bean
+        AtomicReference<Runnable> afterLoad() {
+            return new AtomicReference<>(() -> {
+            });
+        }
+
+        @Bean
+        @Primary
+        InMemoryMemberIndex slowInMemoryMemberIndex(JPAQueryFactory queryFactory,
+                                                    PlatformTransactionManager transactionManager,
+                                                    AtomicReference<Runnable> afterLoad) {
+            return new InMemoryMemberIndex(queryFactory, transactionManager, false) {
+                @Override
+                Columns load() {
+                    Columns loaded = super.load();
+                    afterLoad.get().run();
+                    return loaded;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.CommittingTest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDTO;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//ASYNC/ESTIMATED count 는 별도 스레드의 트랜잭션에서 실행되므로 데이터를 직접 커밋한다
+@CommittingTest
+class MemberCountStrategyTest {
+
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberCountCache memberCountCache;
+
+    MemberSearchCondition condition = new MemberSearchCondition(null, "teamA", null, null);
+
+    @BeforeEach
+    public void before() {
+        memberCountCache.evictAll();
+        saveMembers(0, 5);
+    }
+
+    @Test
+    public void asyncCount() throws Exception {
+        //given
+
+        //when
+        Page<MemberTeamDTO> result = memberRepository.searchPage(condition, PageRequest.of(0, 2), CountStrategy.ASYNC);
+
+        //then
+        assertThat(result.getContent()).hasSize(2);
+        assertThat(result.getTotalElements()).isEqualTo(5);
+    }
+
+    @Test
+    public void cachedCount() throws Exception {
+        //given
+        memberRepository.searchPage(condition, PageRequest.of(0, 2), CountStrategy.CACHED);
+        saveMembers(5, 1);
+
+        //when
+        Page<MemberTeamDTO> cached = memberRepository.searchPage(condition, PageRequest.of(0, 2), CountStrategy.CACHED);
+        memberCountCache.evictAll();
+        Page<MemberTeamDTO> evicted = memberRepository.searchPage(condition, PageRequest.of(0, 2), CountStrategy.CACHED);
+
+        //then
+        assertThat(cached.getTotalElements()).isEqualTo(5);
+        assertThat(evicted.getTotalElements()).isEqualTo(6);
+    }
+
+    @Test
+    public void estimatedCount() throws Exception {
+        //given
+
+        //when
+        Page<MemberTeamDTO> estimated = memberRepository.searchPage(condition, PageRequest.of(0, 2), CountStrategy.ESTIMATED);
+        Page<MemberTeamDTO> refreshed = estimated;
+        long deadline = System.currentTimeMillis() + 5000;
+        while (refreshed.getTotalElements() != 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            refreshed = memberRepository.searchPage(condition, PageRequest.of(0, 2), CountStrategy.ESTIMATED);
+        }
+
+        //then
+        //캐시가 비어 있으면 꽉 찬 첫 페이지 + 1 을 추정치로 반환하고, 백그라운드 갱신 이후 실제 값을 반환
+        assertThat(estimated.getTotalElements()).isEqualTo(3);
+        assertThat(refreshed.getTotalElements()).isEqualTo(5);
+    }
+
+    private void saveMembers(int from, int count) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = em.createQuery("select t from Team t where t.name = 'teamA'", Team.class)
+                    .getResultStream()
+                    .findFirst()
+                    .orElseGet(() -> {
+                        Team team = new Team("teamA");
+                        em.persist(team);
+                        return team;
+                    });
+            for (int i = from; i < from + count; i++) {
+                em.persist(new Member("member" + i, i, teamA));
+            }
+        });
+    }
+}
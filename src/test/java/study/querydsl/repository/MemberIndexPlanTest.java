@@ -0,0 +1,144 @@
+package study.querydsl.repository;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.service.MemberImportService;
+
+import javax.persistence.EntityManager;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MemberSearchCondition 조건 조합별로 repository 가 실제로 만든 SQL 의 실행 계획에 member full table scan 이 없는지 확인한다.
+ * 데이터를 적재하므로 기본 test 에서는 빠지고 ./gradlew planTest 로 실행한다. 데이터 건수는 -PplanMembers 로 조정 (기본 2만 건)
+ */
+@Tag("plan")
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:plan-${random.uuid};DB_CLOSE_DELAY=-1")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class MemberIndexPlanTest {
+
+    private static final int MEMBERS = Integer.getInteger("plan.members", 20_000);
+    private static final int TEAMS = 100;
+
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired MemberImportService memberImportService;
+    @Autowired MemberRepository memberRepository;
+    @Autowired ExecutedSql executedSql;
+
+    @BeforeAll
+    public void seed() {
+        List<String> teamNames = IntStream.range(0, TEAMS)
+                .mapToObj(i -> "team" + i)
+                .collect(Collectors.toList());
+        memberImportService.importMembers(MEMBERS, teamNames);
+        transactionTemplate.executeWithoutResult(status -> em.createNativeQuery("analyze").executeUpdate());
+    }
+
+    @Test
+    public void username() throws Exception {
+        String plan = explainSearch(new MemberSearchCondition("member1", null, null, null));
+
+        assertThat(plan).containsIgnoringCase("idx_member_username");
+        assertNoMemberScan(plan);
+    }
+
+    @Test
+    public void teamName() throws Exception {
+        String plan = explainSearch(new MemberSearchCondition(null, "team1", null, null));
+
+        assertThat(plan).containsIgnoringCase("idx_team_name");
+        assertThat(plan).containsIgnoringCase("idx_member_team_age");
+        assertNoMemberScan(plan);
+    }
+
+    @Test
+    public void teamNameAndAge() throws Exception {
+        String plan = explainSearch(new MemberSearchCondition(null, "team1", 20, 30));
+
+        assertThat(plan).containsIgnoringCase("idx_member_team_age");
+        assertNoMemberScan(plan);
+    }
+
+    @Test
+    public void usernameAndTeamName() throws Exception {
+        String plan = explainSearch(new MemberSearchCondition("member1", "team1", null, null));
+
+        assertNoMemberScan(plan);
+    }
+
+    @Test
+    public void teamNamePageCount() throws Exception {
+        //searchPageComplex 는 content 다음에 count 를 실행 (첫 페이지가 꽉 차야 count 실행)
+        List<String> sql = executeAndCapture(() -> memberRepository.searchPageComplex(
+                new MemberSearchCondition(null, "team1", null, null), PageRequest.of(0, 10)));
+
+        assertThat(sql).hasSize(2);
+        assertNoMemberScan(explain(sql.get(1)));
+    }
+
+    private String explainSearch(MemberSearchCondition condition) {
+        List<String> sql = executeAndCapture(() -> memberRepository.search(condition));
+
+        assertThat(sql).hasSize(1);
+        return explain(sql.get(0));
+    }
+
+    private List<String> executeAndCapture(Runnable query) {
+        executedSql.clear();
+        transactionTemplate.executeWithoutResult(status -> query.run());
+        return executedSql.statements();
+    }
+
+    private String explain(String sql) {
+        return transactionTemplate.execute(status -> (String) em.createNativeQuery("explain " + sql).getSingleResult());
+    }
+
+    private void assertNoMemberScan(String plan) {
+        assertThat(plan).doesNotContainIgnoringCase("member.tableScan");
+    }
+
+    @TestConfiguration
+    static class ExecutedSqlConfig {
+
+        @Bean
+        ExecutedSql executedSql() {
+            return new ExecutedSql();
+        }
+    }
+
+    //p6spy 가 실행한 SQL 을 바인딩 값이 채워진 형태로 모은다
+    static class ExecutedSql extends SimpleJdbcEventListener {
+
+        private final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+            statements.add(statementInformation.getSqlWithValues());
+        }
+
+        void clear() {
+            statements.clear();
+        }
+
+        List<String> statements() {
+            return List.copyOf(statements);
+        }
+    }
+}
@@ -1,29 +1,45 @@
 package study.querydsl.repository;
 
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.BulkMutationResultDTO;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDTO;
+import study.querydsl.dto.MemberTeamSliceDTO;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 @SpringBootTest
 @Transactional
 public class MemberRepositoryTest {
     
     @PersistenceContext EntityManager em;
+    @PersistenceUnit EntityManagerFactory emf;
     @Autowired MemberRepository memberRepository;
+    @Autowired MemberSearchTemplates memberSearchTemplates;
+    @Autowired JPAQueryFactory queryFactory;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired MemberRowReader memberRowReader;
 
     @Test
     public void basicTest() throws Exception {
@@ -42,6 +58,28 @@ public class MemberRepositoryTest {
         assertThat(result3).containsExactly(member);
     }
 
+    @Test
+    public void updateEntityFromFinderInReadWriteTransaction() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.flush();
+        em.clear();
+
+        //when
+        //readOnly 조회 메서드라도 바깥 쓰기 트랜잭션에 참여하면 변경 감지가 동작해야 한다
+        memberRepository.findByUsername("member1").get(0).setAge(20);
+        memberRepository.findAll(new MemberSearchCondition(null, "teamA", null, null), FetchPlan.FETCH_JOIN).get(0).setUsername("member2");
+        em.flush();
+        em.clear();
+
+        //then
+        Member result = em.createQuery("select m from Member m", Member.class).getSingleResult();
+        assertThat(result.getAge()).isEqualTo(20);
+        assertThat(result.getUsername()).isEqualTo("member2");
+    }
+
     @Test
     public void searchByBuilder() throws Exception {
         //given
@@ -71,4 +109,294 @@ public class MemberRepositoryTest {
         //assertThat(result.toList()).extracting("username").containsExactly("member1", "member2", "member3");
         assertThat(result.toList()).extracting("username").containsExactly("member4");
     }
+
+    @Test
+    public void searchSlice() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        //when
+        MemberSearchCondition memberSearchCondition = new MemberSearchCondition();
+        MemberTeamSliceDTO first = memberRepository.searchSlice(memberSearchCondition, null, 3);
+        MemberTeamSliceDTO second = memberRepository.searchSlice(memberSearchCondition, first.getNextCursor(), 3);
+
+        //then
+        assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
+        assertThat(first.isHasNext()).isTrue();
+        assertThat(second.getContent()).extracting("username").containsExactly("member4");
+        assertThat(second.isHasNext()).isFalse();
+        assertThat(second.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void findAllWithFetchPlan() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        Team teamC = new Team("teamC");
+
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(teamC);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamB));
+        em.persist(new Member("member3", 30, teamC));
+
+        em.flush();
+        em.clear();
+
+        //2차 캐시에서 team 을 읽으면 쿼리 수가 줄어 보이므로 비우고 센다
+        emf.getCache().evictAll();
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        MemberSearchCondition memberSearchCondition = new MemberSearchCondition();
+
+        //when
+        statistics.clear();
+        List<Member> fetchJoin = memberRepository.findAll(memberSearchCondition, FetchPlan.FETCH_JOIN);
+        List<String> fetchJoinTeams = fetchJoin.stream().map(m -> m.getTeam().getName()).collect(Collectors.toList());
+        long fetchJoinStatements = statistics.getPrepareStatementCount();
+        em.clear();
+
+        statistics.clear();
+        List<Member> entityGraph = memberRepository.findAll(memberSearchCondition, FetchPlan.ENTITY_GRAPH);
+        List<String> entityGraphTeams = entityGraph.stream().map(m -> m.getTeam().getName()).collect(Collectors.toList());
+        long entityGraphStatements = statistics.getPrepareStatementCount();
+        em.clear();
+
+        statistics.clear();
+        List<Member> batch = memberRepository.findAll(memberSearchCondition, FetchPlan.BATCH);
+        List<String> batchTeams = batch.stream().map(m -> m.getTeam().getName()).collect(Collectors.toList());
+        long batchStatements = statistics.getPrepareStatementCount();
+
+        //then
+        //team 3개에 대해 N+1 (1 + 3) 이 아니라 fetch join / entity graph 는 1번, batch 는 IN 쿼리 1번이 추가
+        assertThat(fetchJoinStatements).isEqualTo(1);
+        assertThat(entityGraphStatements).isEqualTo(1);
+        assertThat(batchStatements).isEqualTo(2);
+        assertThat(fetchJoinTeams).containsExactlyInAnyOrder("teamA", "teamB", "teamC");
+        assertThat(entityGraphTeams).containsExactlyInAnyOrder("teamA", "teamB", "teamC");
+        assertThat(batchTeams).containsExactlyInAnyOrder("teamA", "teamB", "teamC");
+    }
+
+    @Test
+    public void searchByTemplate() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        //when
+        List<MemberTeamDTO> all = memberRepository.search(new MemberSearchCondition());
+        List<MemberTeamDTO> inTeamB = memberRepository.search(new MemberSearchCondition(null, "teamB", 35, 40));
+        List<MemberTeamDTO> ageRange = memberRepository.search(new MemberSearchCondition("", null, 15, 35));
+
+        //then
+        assertThat(all).hasSize(4);
+        assertThat(inTeamB).extracting("username").containsExactly("member4");
+        assertThat(ageRange).extracting("username").containsExactlyInAnyOrder("member2", "member3");
+    }
+
+    @Test
+    public void searchByInMemoryIndex() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member4", 45));
+        em.flush();
+
+        //롤백되는 데이터가 공용 인덱스에 남지 않도록 테스트 전용 인스턴스에 적재
+        InMemoryMemberIndex inMemoryMemberIndex = new InMemoryMemberIndex(queryFactory, transactionManager, false);
+        inMemoryMemberIndex.reload();
+
+        //when
+        List<MemberSearchCondition> conditions = List.of(
+                new MemberSearchCondition(),
+                new MemberSearchCondition("member4", null, null, null),
+                new MemberSearchCondition(null, "teamB", 35, 40),
+                new MemberSearchCondition(null, null, 15, 35),
+                new MemberSearchCondition("member1", "teamB", null, null)
+        );
+
+        //then
+        for (MemberSearchCondition condition : conditions) {
+            assertThat(inMemoryMemberIndex.search(condition))
+                    .usingRecursiveFieldByFieldElementComparator()
+                    .containsExactlyInAnyOrderElementsOf(memberSearchTemplates.search(condition).getResultList());
+        }
+    }
+
+    @Test
+    public void searchByInMemoryIndexAfterChanges() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+        em.persist(member1);
+        em.persist(member2);
+        em.flush();
+
+        InMemoryMemberIndex inMemoryMemberIndex = new InMemoryMemberIndex(queryFactory, transactionManager, false);
+        inMemoryMemberIndex.reload();
+
+        //when
+        inMemoryMemberIndex.removeMember(member1.getId());
+        inMemoryMemberIndex.saveMember(member2.getId(), "member1", 25, teamA.getId(), "teamA");
+        inMemoryMemberIndex.saveMember(999L, "member3", 30, null, null);
+
+        //then
+        assertThat(inMemoryMemberIndex.search(new MemberSearchCondition("member1", null, null, null)))
+                .extracting("memberId", "age")
+                .containsExactly(tuple(member2.getId(), 25));
+        assertThat(inMemoryMemberIndex.search(new MemberSearchCondition("member2", null, null, null))).isEmpty();
+        assertThat(inMemoryMemberIndex.search(new MemberSearchCondition("member3", null, null, null))).hasSize(1);
+        assertThat(inMemoryMemberIndex.search(new MemberSearchCondition(null, "teamA", null, null)))
+                .extracting("username")
+                .containsExactly("member1");
+    }
+
+    @Test
+    public void scanRows() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("member" + i, 10 + i, teamA));
+        }
+        em.persist(new Member("memberNoTeam", 20));
+        em.flush();
+
+        MemberSearchCondition condition = new MemberSearchCondition(null, null, 11, 20);
+
+        //when
+        List<MemberTeamDTO> rows = new ArrayList<>();
+        List<Integer> chunkSizes = new ArrayList<>();
+        memberRowReader.scan(condition, new MemberRowBuffer(2), buffer -> {
+            chunkSizes.add(buffer.size());
+            for (int i = 0; i < buffer.size(); i++) {
+                rows.add(buffer.toDto(i));
+            }
+        });
+
+        //then
+        assertThat(chunkSizes).containsExactly(2, 2, 1);
+        assertThat(rows)
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(memberRepository.searchSlice(condition, null, 10).getContent());
+    }
+
+    @Test
+    public void scanRowsMatchesSearchForEveryConditionShape() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 20, teamA));
+        em.persist(new Member("member1", 40, teamB));
+        em.persist(new Member("member1", 30));
+        em.persist(new Member("member2", 10, teamA));
+        em.persist(new Member("member2", 30, teamA));
+        em.persist(new Member("member3", 25));
+        em.flush();
+
+        //when
+        //MemberRowReader 는 SQL 을 직접 만들므로 username/teamName/ageGoe/ageLoe 16가지 조합 모두 search() 와 비교
+        for (int shape = 0; shape < 16; shape++) {
+            MemberSearchCondition condition = new MemberSearchCondition(
+                    (shape & 1) != 0 ? "member1" : null,
+                    (shape & 2) != 0 ? "teamA" : null,
+                    (shape & 4) != 0 ? 15 : null,
+                    (shape & 8) != 0 ? 35 : null);
+
+            List<MemberTeamDTO> rows = new ArrayList<>();
+            memberRowReader.scan(condition, new MemberRowBuffer(2), buffer -> {
+                for (int i = 0; i < buffer.size(); i++) {
+                    rows.add(buffer.toDto(i));
+                }
+            });
+
+            //then
+            assertThat(rows)
+                    .as("shape %d: %s", shape, condition)
+                    .usingRecursiveFieldByFieldElementComparator()
+                    .containsExactlyInAnyOrderElementsOf(memberRepository.search(condition));
+        }
+    }
+
+    @Test
+    public void searchPageTwoPhase() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 10; i++) {
+            em.persist(new Member("member" + i, i, (i % 2 == 0) ? teamA : teamB));
+        }
+
+        //when
+        Page<MemberTeamDTO> firstPage = memberRepository.searchPageTwoPhase(new MemberSearchCondition(null, "teamA", null, null), PageRequest.of(0, 3));
+        Page<MemberTeamDTO> lastPage = memberRepository.searchPageTwoPhase(new MemberSearchCondition(null, "teamA", null, null), PageRequest.of(1, 3));
+        Page<MemberTeamDTO> noTeamCondition = memberRepository.searchPageTwoPhase(new MemberSearchCondition(null, null, 5, null), PageRequest.of(1, 3));
+
+        //then
+        assertThat(firstPage.getTotalElements()).isEqualTo(5);
+        assertThat(firstPage.getContent()).extracting("username").containsExactly("member0", "member2", "member4");
+        assertThat(lastPage.getContent()).extracting("username").containsExactly("member6", "member8");
+        assertThat(noTeamCondition.getContent()).extracting("username", "teamName")
+                .containsExactly(tuple("member8", "teamA"), tuple("member9", "teamB"));
+    }
+
+    @Test
+    public void bulkAddAge() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+        Member member3 = new Member("member3", 30, teamB);
+
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+
+        //when
+        BulkMutationResultDTO result = memberRepository.bulkAddAge(new MemberSearchCondition(null, "teamA", null, null), 10);
+
+        //then
+        assertThat(result.getAffectedRows()).isEqualTo(2);
+        assertThat(em.contains(member1)).isFalse();
+        assertThat(em.contains(member3)).isTrue();
+        assertThat(memberRepository.findById(member1.getId()).get().getAge()).isEqualTo(20);
+    }
 }
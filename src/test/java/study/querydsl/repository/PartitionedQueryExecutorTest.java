@@ -0,0 +1,120 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.CommittingTest;
+import study.querydsl.dto.AggregateDTO;
+import study.querydsl.dto.MemberTeamDTO;
+import study.querydsl.dto.QMemberTeamDTO;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+//파티션은 별도 트랜잭션에서 읽으므로 데이터를 직접 커밋한다
+@CommittingTest
+@TestPropertySource(properties = {
+        "member.query.partition.parallelism=3",
+        "member.query.partition.min-size=2"
+})
+class PartitionedQueryExecutorTest {
+
+    @Autowired EntityManager em;
+    @Autowired JPAQueryFactory queryFactory;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired PartitionedQueryExecutor partitionedQueryExecutor;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 1; i <= 10; i++) {
+                em.persist(new Member("member" + i, i * 10, (i % 2 == 0) ? teamA : teamB));
+            }
+        });
+    }
+
+    @Test
+    public void aggregate() throws Exception {
+        //given
+
+        //when
+        AggregateDTO result = partitionedQueryExecutor.aggregate(member.age, query -> query.from(member));
+
+        //then
+        assertThat(result.getCount()).isEqualTo(10);
+        assertThat(result.getSum()).isEqualTo(550);
+        assertThat(result.getAvg()).isEqualTo(55);
+        assertThat(result.getMin()).isEqualTo(10);
+        assertThat(result.getMax()).isEqualTo(100);
+    }
+
+    @Test
+    public void aggregateBy() throws Exception {
+        //given
+        List<Tuple> expected = transactionTemplate.execute(status -> queryFactory
+                .select(team.name, member.age.avg())
+                .from(member)
+                .join(member.team, team)
+                .groupBy(team.name)
+                .fetch());
+
+        //when
+        Map<String, AggregateDTO> result = partitionedQueryExecutor.aggregateBy(team.name, member.age,
+                query -> query.from(member).join(member.team, team));
+
+        //then
+        assertThat(result).hasSize(2);
+        for (Tuple tuple : expected) {
+            assertThat(result.get(tuple.get(team.name)).getAvg()).isEqualTo(tuple.get(member.age.avg()));
+        }
+        assertThat(result.get("teamA").getCount()).isEqualTo(5);
+        assertThat(result.get("teamB").getMax()).isEqualTo(90);
+    }
+
+    @Test
+    public void fetchOrdered() throws Exception {
+        //given
+
+        //when
+        List<MemberTeamDTO> result = partitionedQueryExecutor.fetchOrdered(
+                factory -> factory
+                        .select(new QMemberTeamDTO(member.id, member.username, member.age, team.id, team.name))
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .orderBy(member.age.desc()),
+                Comparator.comparing(MemberTeamDTO::getAge).reversed(),
+                3);
+
+        //then
+        assertThat(result)
+                .extracting("username")
+                .containsExactly("member10", "member9", "member8");
+    }
+
+    @Test
+    public void fetchOrderedRejectsEntity() throws Exception {
+        //파티션 트랜잭션이 끝나면 준영속이 되므로 엔티티 조회는 허용하지 않음
+        assertThatThrownBy(() -> partitionedQueryExecutor.fetchOrdered(
+                factory -> factory.selectFrom(member).orderBy(member.age.desc()),
+                Comparator.comparing(Member::getAge).reversed(),
+                3))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
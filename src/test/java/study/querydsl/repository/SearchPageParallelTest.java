@@ -0,0 +1,163 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.CommittingTest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDTO;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+
+//content/count 는 전용 풀의 별도 트랜잭션에서 읽으므로 데이터를 직접 커밋한다
+@CommittingTest
+@TestPropertySource(properties = {
+        "member.query.async-threads=1",
+        "member.query.parallel-page.threads=1",
+        "member.query.parallel-page.queue-capacity=1"
+})
+class SearchPageParallelTest {
+
+    //H2 는 행을 읽는 중간에 취소/timeout 을 확인하므로 충분히 긴 scan 이면 취소 여부를 관찰할 수 있다
+    private static final String SLOW_QUERY = "select count(*) from system_range(1, 1000000000) r where mod(r.x * r.x, 7) = 8";
+
+    @Autowired EntityManager em;
+    @Autowired TransactionTemplate transactionTemplate;
+    @Autowired MemberRepository memberRepository;
+    @Autowired AsyncQueryExecutor asyncQueryExecutor;
+    @SpyBean MemberSearchTemplates memberSearchTemplates;
+
+    MemberSearchCondition condition = new MemberSearchCondition(null, "teamA", null, null);
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            for (int i = 0; i < 5; i++) {
+                em.persist(new Member("member" + i, i, teamA));
+            }
+        });
+    }
+
+    @Test
+    public void searchPageParallel() throws Exception {
+        //given
+
+        //when
+        Page<MemberTeamDTO> result = memberRepository.searchPageParallel(condition, PageRequest.of(0, 2));
+        Page<MemberTeamDTO> inTransaction = transactionTemplate.execute(status ->
+                memberRepository.searchPageParallel(condition, PageRequest.of(0, 2)));
+
+        //then
+        assertThat(result.getContent()).extracting("username").containsExactly("member0", "member1");
+        assertThat(result.getTotalElements()).isEqualTo(5);
+        assertThat(inTransaction.getContent()).extracting("username").containsExactly("member0", "member1");
+        assertThat(inTransaction.getTotalElements()).isEqualTo(5);
+    }
+
+    @Test
+    public void searchPageParallelFallsBackWhenPoolIsFull() throws Exception {
+        //given
+        //스레드 1개 + 대기열 1개를 모두 채움
+        CompletableFuture<Object> running = asyncQueryExecutor.submitPageQuery(this::slowQuery, Duration.ofSeconds(60));
+        CompletableFuture<Object> queued = asyncQueryExecutor.submitPageQuery(this::slowQuery, Duration.ofSeconds(60));
+
+        try {
+            //when
+            Page<MemberTeamDTO> result = memberRepository.searchPageParallel(condition, PageRequest.of(0, 2));
+
+            //then
+            assertThat(result.getContent()).hasSize(2);
+            assertThat(result.getTotalElements()).isEqualTo(5);
+        } finally {
+            queued.cancel(true);
+            running.cancel(true);
+        }
+    }
+
+    @Test
+    public void searchPageParallelThrowsCountFailure() throws Exception {
+        //given
+        doThrow(new DataAccessResourceFailureException("count failed")).when(memberSearchTemplates).count(any());
+
+        //when, then
+        //취소된 content 의 CancellationException 이 아니라 count 의 실패 원인을 받아야 함
+        assertThatThrownBy(() -> memberRepository.searchPageParallel(condition, PageRequest.of(0, 2)))
+                .isInstanceOf(DataAccessResourceFailureException.class)
+                .hasMessage("count failed");
+    }
+
+    @Test
+    public void pageQueryTimeout() throws Exception {
+        //given
+
+        //when
+        CompletableFuture<Object> result = asyncQueryExecutor.submitPageQuery(this::slowQuery, Duration.ofSeconds(1));
+
+        //then
+        //트랜잭션 timeout 이 statement timeout 으로 적용되어 DB 쪽에서 중단된다
+        assertThatThrownBy(() -> result.get(10, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+    }
+
+    @Test
+    public void cancelPageQuery() throws Exception {
+        //given
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Object> slow = asyncQueryExecutor.submitPageQuery(() -> {
+            started.countDown();
+            return slowQuery();
+        }, Duration.ofSeconds(60));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        //statement 가 실제로 실행될 때까지 잠시 대기
+        Thread.sleep(200);
+
+        //when
+        slow.cancel(true);
+        CompletableFuture<Long> next = asyncQueryExecutor.submitPageQuery(
+                () -> em.createQuery("select count(m) from Member m", Long.class).getSingleResult(), Duration.ofSeconds(5));
+
+        //then
+        //스레드가 하나뿐이므로 취소된 statement 가 실제로 멈춰야 다음 쿼리가 실행된다
+        assertThat(next.get(10, TimeUnit.SECONDS)).isEqualTo(5);
+    }
+
+    @Test
+    public void cancelReadOnlyQueryOnTimeout() throws Exception {
+        //given
+        CompletableFuture<Object> slow = asyncQueryExecutor.submitReadOnly(this::slowQuery, Duration.ofSeconds(60))
+                .orTimeout(500, TimeUnit.MILLISECONDS);
+
+        //when
+        CompletableFuture<Long> next = asyncQueryExecutor.submitReadOnly(
+                () -> em.createQuery("select count(m) from Member m", Long.class).getSingleResult(), Duration.ofSeconds(5));
+
+        //then
+        //orTimeout 은 cancel 하지 않으므로 statement 를 직접 취소해야 하나뿐인 스레드가 다음 쿼리를 실행한다
+        assertThatThrownBy(() -> slow.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(TimeoutException.class);
+        assertThat(next.get(10, TimeUnit.SECONDS)).isEqualTo(5);
+    }
+
+    private Object slowQuery() {
+        return em.createNativeQuery(SLOW_QUERY).getSingleResult();
+    }
+}
@@ -0,0 +1,56 @@
+package study.querydsl.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import study.querydsl.CommittingTest;
+import study.querydsl.dto.MemberImportResultDTO;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.TeamStatisticsRepository;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+//chunk 마다 커밋하므로 @Transactional 롤백 대신 직접 정리한다
+@CommittingTest
+@TestPropertySource(properties = "member.import.chunk-size=3")
+class MemberImportServiceTest {
+
+    @Autowired MemberImportService memberImportService;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamStatisticsRepository teamStatisticsRepository;
+
+    @Test
+    public void importInChunks() throws Exception {
+        //given
+
+        //when
+        MemberImportResultDTO result = memberImportService.importMembers(10, List.of("teamA", " teamB "));
+
+        //then
+        assertThat(result.getMembers()).isEqualTo(10);
+        assertThat(result.getTeams()).isEqualTo(2);
+        assertThat(memberRepository.count()).isEqualTo(10);
+        assertThat(teamStatisticsRepository.findAll())
+                .extracting("teamName", "memberCount")
+                .containsExactly(tuple("teamA", 5L), tuple("teamB", 5L));
+    }
+
+    @Test
+    public void rejectInvalidInput() throws Exception {
+        //given
+
+        //when, then
+        assertThatThrownBy(() -> memberImportService.importMembers(-1, List.of("teamA")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> memberImportService.importMembers(10, Arrays.asList("teamA", " ")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> memberImportService.importMembers(10, List.of("teamA", "teamA")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(memberRepository.count()).isZero();
+    }
+}
@@ -0,0 +1,71 @@
+package study.querydsl.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDTO;
+import study.querydsl.dto.MemberTeamSliceDTO;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * slice 조회가 구독자의 요청 수에 맞춰서만 일어나는지 확인한다. (repository 는 mock)
+ */
+class MemberSearchStreamServiceTest {
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    MemberTeamDTO member1 = new MemberTeamDTO(1L, "member1", 10, null, null);
+    MemberTeamDTO member2 = new MemberTeamDTO(2L, "member2", 20, null, null);
+    MemberTeamDTO member3 = new MemberTeamDTO(3L, "member3", 30, null, null);
+
+    MemberRepository memberRepository;
+    MemberSearchStreamService memberSearchStreamService;
+
+    @BeforeEach
+    public void before() {
+        memberRepository = mock(MemberRepository.class);
+        memberSearchStreamService = new MemberSearchStreamService(memberRepository);
+        given(memberRepository.searchSlice(condition, null, 2)).willReturn(new MemberTeamSliceDTO(List.of(member1, member2), "c1", true));
+        given(memberRepository.searchSlice(condition, "c1", 2)).willReturn(new MemberTeamSliceDTO(List.of(member3), null, false));
+    }
+
+    @Test
+    public void fetchSlicesOnDemand() throws Exception {
+        StepVerifier.create(memberSearchStreamService.search(condition, 2), 0)
+                //구독만으로는 조회하지 않음
+                .then(() -> verify(memberRepository, never()).searchSlice(any(), any(), anyInt()))
+                .thenRequest(1)
+                .expectNext(member1)
+                .then(() -> verify(memberRepository, times(1)).searchSlice(condition, null, 2))
+                .thenRequest(1)
+                .expectNext(member2)
+                //첫 slice 를 다 받았어도 다음 원소를 요청하기 전에는 다음 slice 를 읽지 않음
+                .then(() -> verify(memberRepository, never()).searchSlice(condition, "c1", 2))
+                .thenRequest(1)
+                .expectNext(member3)
+                .verifyComplete();
+
+        verify(memberRepository, times(1)).searchSlice(condition, "c1", 2);
+    }
+
+    @Test
+    public void stopFetchingOnCancel() throws Exception {
+        StepVerifier.create(memberSearchStreamService.search(condition, 2), 2)
+                .expectNext(member1, member2)
+                .thenCancel()
+                .verify();
+
+        verify(memberRepository, times(1)).searchSlice(condition, null, 2);
+        verify(memberRepository, never()).searchSlice(condition, "c1", 2);
+    }
+}